@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "cat"
@@ -16,4 +17,54 @@ dependencies {
     implementation("com.jamieswhiteshirt:rtree-3i-lite:0.3.0")
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// Compiles the callback scripts of all trigger definitions ahead of time, see ScriptPrecompiler.
+// Put the resulting jar on the server's classpath to skip javac for these scripts at runtime.
+val triggerScripts = providers.gradleProperty("triggerScripts").orElse("src/main/triggers")
+val precompiledScripts = layout.buildDirectory.file("libs/trigger-scripts.jar")
+
+tasks.register<JavaExec>("precompileScripts") {
+    group = "build"
+    description = "Compiles the callback scripts of the trigger definitions in -PtriggerScripts into a jar"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("cat.TRIGGER.dynamic.ScriptPrecompiler")
+    inputs.files(fileTree(triggerScripts))
+    outputs.file(precompiledScripts)
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(precompiledScripts.get().asFile.absolutePath, file(triggerScripts.get()).absolutePath)
+    })
+}
+
+// Benchmarks of the collision and compile hot paths over synthetic worlds, the sources are in src/jmh/java.
+// Run with ./gradlew jmh, -PjmhIncludes=<regex> selects benchmarks. Results are written as JSON together with the
+// allocation rates of the gc profiler, and archived per version in benchmarks/ so releases can be compared.
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+
+jmh {
+    jmhVersion.set("1.37")
+    includes.set(providers.gradleProperty("jmhIncludes").map { listOf(it) }.orElse(listOf()))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(jmhResults)
+}
+
+val archiveBenchmarkResults = tasks.register<Copy>("archiveBenchmarkResults") {
+    group = "benchmark"
+    description = "Copies the JMH results into benchmarks/<version>.json"
+    from(jmhResults)
+    into(layout.projectDirectory.dir("benchmarks"))
+    rename { "${project.version}.json" }
+}
+
+tasks.named("jmh") {
+    finalizedBy(archiveBenchmarkResults)
 }
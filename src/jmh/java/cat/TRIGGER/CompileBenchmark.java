@@ -0,0 +1,74 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER;
+
+import cat.TRIGGER.dynamic.RuntimeCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Benchmarks of compiling callback scripts, with and without the cache.
+ * Uncached scripts get a unique body per invocation, and are released again so the cache does not grow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompileBenchmark {
+
+    private static final String IMPORTS = "import cat.TRIGGER.TriggeredCallback;\nimport net.kyori.adventure.text.Component;";
+    private static final String BODY = """
+            TriggeredCallback callback = (TriggeredCallback) o;
+            if (callback.type() == TriggeredCallback.Type.ENTERED) callback.player().sendMessage(Component.text("%d"));""";
+
+    @Param({"1", "16"})
+    public int batchSize;
+
+    private long counter = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        RuntimeCompiler.setCacheDirectory(null);
+        RuntimeCompiler.compileConsumer(IMPORTS, BODY.formatted(-1L)); // Kept for cached()
+    }
+
+    @Benchmark
+    public Consumer<TriggeredCallback> compileConsumer() throws Exception {
+        String body = BODY.formatted(counter++);
+        Consumer<TriggeredCallback> consumer = RuntimeCompiler.compileConsumer(IMPORTS, body);
+        RuntimeCompiler.release(RuntimeCompiler.hash(IMPORTS, body));
+        return consumer;
+    }
+
+    @Benchmark
+    public List<RuntimeCompiler.Result> compileAll() {
+        List<RuntimeCompiler.Source> sources = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            sources.add(new RuntimeCompiler.Source(IMPORTS, BODY.formatted(counter++)));
+        }
+        List<RuntimeCompiler.Result> results = RuntimeCompiler.compileAll(sources);
+        for (RuntimeCompiler.Source source : sources) {
+            RuntimeCompiler.release(RuntimeCompiler.hash(source.imports(), source.functionBody()));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Consumer<TriggeredCallback> cached() throws Exception {
+        String body = BODY.formatted(-1L);
+        Consumer<TriggeredCallback> consumer = RuntimeCompiler.compileConsumer(IMPORTS, body);
+        RuntimeCompiler.release(RuntimeCompiler.hash(IMPORTS, body));
+        return consumer;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER;
+
+import com.jamieswhiteshirt.rtree3i.Box;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the movement handling of a {@link TriggerManager} over a synthetic world.
+ * Every invocation moves every player one step along its walk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ManagerBenchmark {
+
+    private static final int STEPS = 32;
+
+    @Param({"100", "10000"})
+    public int triggerCount;
+
+    @Param({"8", "32"})
+    public int anchorCount;
+
+    @Param({"1", "100"})
+    public int playerCount;
+
+    /**
+     * Average amount of triggers covering a point.
+     */
+    @Param({"0.25", "4"})
+    public double overlap;
+
+    private TriggerManager manager;
+    private Instance instance;
+    private Player[] players;
+    private Pos[][] walks;
+    private int step = 0;
+
+    @Setup
+    public void setup() {
+        World.init();
+        Random random = new Random(World.SEED);
+        manager = new TriggerManager(false);
+        instance = MinecraftServer.getInstanceManager().createInstanceContainer();
+        manager.addAll(instance, World.triggers(random, triggerCount, anchorCount, overlap));
+
+        double extent = World.extent(triggerCount, overlap);
+        players = new Player[playerCount];
+        walks = new Pos[playerCount][];
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = World.player(i);
+            walks[i] = World.walk(random, STEPS, extent);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.removeInstance(instance);
+        MinecraftServer.getInstanceManager().unregisterInstance(instance);
+    }
+
+    @Benchmark
+    public void handleTriggers(Blackhole blackhole) {
+        int from = step++ % (STEPS * 2);
+        int to = (from + 1) % (STEPS * 2);
+        for (int i = 0; i < players.length; i++) {
+            manager.handleTriggers(players[i], instance, walks[i][from], walks[i][to], blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void broadphase(Blackhole blackhole) {
+        int index = step++ % (STEPS * 2);
+        for (Pos[] walk : walks) {
+            Pos pos = walk[index];
+            Box box = Box.create((int) Math.floor(pos.x() - 1.5), (int) Math.floor(pos.y() - 1.5), (int) Math.floor(pos.z() - 1.5),
+                    (int) Math.ceil(pos.x() + 1.5), (int) Math.ceil(pos.y() + 3), (int) Math.ceil(pos.z() + 1.5));
+            manager.getTriggers(instance).query(box, blackhole::consume);
+        }
+    }
+}
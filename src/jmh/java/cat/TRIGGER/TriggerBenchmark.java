@@ -0,0 +1,76 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER;
+
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of a single trigger: computing the hull and the narrowphase collision checks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TriggerBenchmark {
+
+    private static final int POSITIONS = 1024; // Power of two
+
+    @Param({"8", "64", "512"})
+    public int anchorCount;
+
+    private Random random;
+    private List<Vec> anchors;
+    private Trigger trigger;
+    private Player player;
+    private Pos[] positions;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        World.init();
+        random = new Random(World.SEED);
+        anchors = World.anchors(random, anchorCount, World.TRIGGER_SIZE);
+        trigger = World.trigger(random, anchors, Vec.ZERO);
+        player = World.player(0);
+        positions = World.positions(random, POSITIONS, -World.TRIGGER_SIZE, World.TRIGGER_SIZE);
+    }
+
+    private Pos nextPosition() {
+        return positions[next++ & (POSITIONS - 1)];
+    }
+
+    @Benchmark
+    public Trigger compute() {
+        return World.trigger(random, anchors, Vec.ZERO);
+    }
+
+    @Benchmark
+    public boolean containsBox() {
+        Pos pos = nextPosition();
+        return trigger.contains(player.getBoundingBox(), pos.x(), pos.y(), pos.z());
+    }
+
+    @Benchmark
+    public boolean containsHitboxPoints() {
+        return trigger.contains(Trigger.getHitboxPoints(nextPosition(), player));
+    }
+
+    @Benchmark
+    public List<Vec> hitboxPoints() {
+        return Trigger.getHitboxPoints(nextPosition(), player);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Player;
+import net.minestom.server.network.packet.server.SendablePacket;
+import net.minestom.server.network.player.GameProfile;
+import net.minestom.server.network.player.PlayerConnection;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Builds the synthetic worlds of the benchmarks. Everything is seeded, so every run measures the same world.
+ */
+final class World {
+
+    /**
+     * Diameter of every synthetic trigger in blocks.
+     */
+    static final double TRIGGER_SIZE = 8;
+    static final long SEED = 42;
+
+    private static boolean initialized = false;
+
+    private World() {}
+
+    /**
+     * Initialize the server once per JVM, players and instances need its registries. The server is never started.
+     */
+    static synchronized void init() {
+        if (initialized) return;
+        MinecraftServer.init();
+        initialized = true;
+    }
+
+    /**
+     * Get the side length of the cube the triggers are spread over, so that on average {@code overlap} triggers cover every point.
+     * @param triggerCount The amount of triggers.
+     * @param overlap The overlap density.
+     * @return The side length in blocks.
+     */
+    static double extent(int triggerCount, double overlap) {
+        return TRIGGER_SIZE * Math.cbrt(triggerCount / overlap);
+    }
+
+    /**
+     * Random anchors on a sphere, so every anchor is a vertex of the hull.
+     */
+    static List<Vec> anchors(Random random, int count, double size) {
+        List<Vec> anchors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Vec direction = new Vec(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+            anchors.add(direction.normalize().mul(size / 2));
+        }
+        return anchors;
+    }
+
+    static Trigger trigger(Random random, List<Vec> anchors, Vec position) {
+        return new Trigger(anchors, position, new UUID(random.nextLong(), random.nextLong()), Component.text("benchmark"), NamedTextColor.RED, null);
+    }
+
+    static List<Trigger> triggers(Random random, int count, int anchorCount, double overlap) {
+        double extent = extent(count, overlap);
+        List<Trigger> triggers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            triggers.add(trigger(random, anchors(random, anchorCount, TRIGGER_SIZE), position(random, 0, extent)));
+        }
+        return triggers;
+    }
+
+    static Vec position(Random random, double min, double max) {
+        return new Vec(min + random.nextDouble() * (max - min), min + random.nextDouble() * (max - min), min + random.nextDouble() * (max - min));
+    }
+
+    static Pos[] positions(Random random, int count, double min, double max) {
+        Pos[] positions = new Pos[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = new Pos(position(random, min, max));
+        }
+        return positions;
+    }
+
+    /**
+     * A walk of walking speed steps that ends where it started, so it can be replayed in a loop.
+     */
+    static Pos[] walk(Random random, int steps, double extent) {
+        Pos[] walk = new Pos[steps * 2];
+        Pos current = new Pos(position(random, 0, extent));
+        for (int i = 0; i < steps; i++) {
+            walk[i] = current;
+            walk[walk.length - 1 - i] = current;
+            current = current.add(random.nextGaussian() * 0.2, random.nextGaussian() * 0.05, random.nextGaussian() * 0.2);
+        }
+        return walk;
+    }
+
+    /**
+     * A player without a network connection, every packet is dropped.
+     */
+    static Player player(int id) {
+        PlayerConnection connection = new PlayerConnection() {
+            @Override
+            public void sendPacket(SendablePacket packet) {}
+
+            @Override
+            public SocketAddress getRemoteAddress() {
+                return new InetSocketAddress("localhost", 25565);
+            }
+        };
+        return new Player(connection, new GameProfile(new UUID(SEED, id), "benchmark" + id));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+package cat.TRIGGER;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Decides on which thread the callbacks of triggers run.
+ * Set with {@link TriggerManager#setCallbackDispatcher(CallbackDispatcher)}.
+ * Triggers that {@link Trigger#setTickThreadCallbacks(boolean) require the tick thread} bypass the dispatcher.
+ */
+@FunctionalInterface
+public interface CallbackDispatcher {
+
+    /**
+     * Runs every callback right away on the thread that evaluated the collision. This is the default.
+     */
+    CallbackDispatcher SYNC = callback -> callback.trigger().fire(callback);
+
+    /**
+     * Run or schedule the callback of a trigger, usually through {@link Trigger#fire(TriggeredCallback)}.
+     * @param callback The callback data, containing the player and the trigger.
+     */
+    void dispatch(TriggeredCallback callback);
+
+    /**
+     * Create a dispatcher that runs callbacks on an {@link Executor}, for example a bounded thread pool.
+     * Callbacks of the same player still run one after another, in the order they were dispatched.
+     * @param executor The {@link Executor} that runs the callbacks.
+     * @return The new dispatcher.
+     */
+    static CallbackDispatcher ordered(Executor executor) {
+        return new OrderedCallbackDispatcher(executor);
+    }
+
+    /**
+     * Create a dispatcher that runs every callback on a new virtual thread.
+     * Callbacks of the same player still run one after another, in the order they were dispatched.
+     * @return The new dispatcher.
+     */
+    static CallbackDispatcher virtualThreads() {
+        return ordered(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
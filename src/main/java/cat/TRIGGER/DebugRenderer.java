@@ -0,0 +1,175 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package cat.TRIGGER;
+
+import com.jamieswhiteshirt.rtree3i.Box;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.ServerFlag;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.server.SendablePacket;
+import net.minestom.server.network.packet.server.play.BundlePacket;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Draws the hulls of all triggers near every player, used by the {@link TriggerManager} in debug mode.
+ * <p>
+ * The particles of every trigger are built and encoded once, see {@link Trigger#render(Player)}. Only triggers within the
+ * view distance of a player are drawn, nearest first, until the {@link DebugRenderer#getParticleBudget() particle budget}
+ * of the player is used up. All particles a player gets in one render are sent as bundles, which the client handles at once.
+ */
+public final class DebugRenderer {
+
+    /**
+     * The most packets the client accepts in one bundle.
+     */
+    static final int MAX_BUNDLE_SIZE = 4096;
+
+    public static final int DEFAULT_PARTICLE_BUDGET = 4096;
+    public static final int DEFAULT_MAX_DISTANCE = 64;
+    public static final int DEFAULT_INTERVAL = 5; // Trail particles live for 7 ticks, so the hulls stay visible
+
+    private final TriggerManager manager;
+    private volatile int particleBudget = DEFAULT_PARTICLE_BUDGET;
+    private volatile int maxDistance = DEFAULT_MAX_DISTANCE;
+    private volatile int interval = DEFAULT_INTERVAL;
+    private long tickCounter = 0;
+
+    DebugRenderer(TriggerManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Internally used to render for all online players, called every tick.
+     */
+    void tick() {
+        if (tickCounter++ % interval != 0) return;
+        for (Player player : MinecraftServer.getConnectionManager().getOnlinePlayers()) {
+            render(player);
+        }
+    }
+
+    /**
+     * Draw the triggers near a player.
+     * @param player The player to render for.
+     * @return The amount of particles sent.
+     */
+    public int render(Player player) {
+        Instance instance = player.getInstance();
+        if (instance == null) return 0;
+        final Pos pos = player.getPosition();
+        final int distance = Math.min(maxDistance, Math.min(player.getSettings().viewDistance(), ServerFlag.CHUNK_VIEW_DISTANCE) * 16);
+        final double maxSquared = (double) distance * distance;
+
+        List<Visible> visible = new ArrayList<>();
+        Box view = Box.create(
+                (int) Math.floor(pos.x() - distance), (int) Math.floor(pos.y() - distance), (int) Math.floor(pos.z() - distance),
+                (int) Math.ceil(pos.x() + distance), (int) Math.ceil(pos.y() + distance), (int) Math.ceil(pos.z() + distance)
+        );
+        manager.getTriggers(instance).query(view, trigger -> {
+            double squared = distanceSquared(trigger.getBoundingBox(), pos);
+            if (squared <= maxSquared) visible.add(new Visible(trigger, squared));
+        });
+        visible.sort(Comparator.comparingDouble(Visible::distanceSquared));
+
+        final int budget = particleBudget;
+        int sent = 0;
+        int bundled = 0;
+        for (Visible entry : visible) {
+            SendablePacket[] packets = entry.trigger().debugPackets();
+            if (packets.length == 0 || sent + packets.length > budget) continue; // Smaller triggers further away may still fit
+            for (SendablePacket packet : packets) {
+                // A bundle delimiter opens a bundle and the next one closes it
+                if (bundled == MAX_BUNDLE_SIZE) {
+                    player.sendPacket(new BundlePacket());
+                    bundled = 0;
+                }
+                if (bundled == 0) player.sendPacket(new BundlePacket());
+                player.sendPacket(packet);
+                bundled++;
+            }
+            sent += packets.length;
+        }
+        if (bundled > 0) player.sendPacket(new BundlePacket());
+        return sent;
+    }
+
+    private static double distanceSquared(Box box, Pos pos) {
+        double dx = Math.max(0, Math.max(box.x1() - pos.x(), pos.x() - box.x2()));
+        double dy = Math.max(0, Math.max(box.y1() - pos.y(), pos.y() - box.y2()));
+        double dz = Math.max(0, Math.max(box.z1() - pos.z(), pos.z() - box.z2()));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Get how many particles every player gets at most per render.
+     * @return The particle budget.
+     */
+    public int getParticleBudget() {
+        return particleBudget;
+    }
+
+    /**
+     * Set how many particles every player gets at most per render. Triggers that do not fit into the rest of the budget are skipped.
+     * @param particleBudget The particle budget, at least 0.
+     */
+    public void setParticleBudget(int particleBudget) {
+        if (particleBudget < 0) {
+            throw new IllegalArgumentException("Particle budget must not be negative, got " + particleBudget);
+        }
+        this.particleBudget = particleBudget;
+    }
+
+    /**
+     * Get the distance in blocks up to which triggers are drawn, the view distance of the player may limit it further.
+     * @return The maximum distance.
+     */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Set the distance in blocks up to which triggers are drawn, the view distance of the player may limit it further.
+     * @param maxDistance The maximum distance, at least 0.
+     */
+    public void setMaxDistance(int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Max distance must not be negative, got " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Get every how many ticks the triggers are drawn.
+     * @return The interval in ticks.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Set every how many ticks the triggers are drawn.
+     * @param interval The interval in ticks, at least 1.
+     */
+    public void setInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1, got " + interval);
+        }
+        this.interval = interval;
+    }
+
+    private record Visible(Trigger trigger, double distanceSquared) {}
+}
@@ -0,0 +1,57 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+package cat.TRIGGER;
+
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import net.minestom.server.entity.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link CallbackDispatcher} that runs callbacks on an {@link Executor} while keeping the order per player.
+ * Every callback of a player is chained after the previous one of the same player, callbacks of different players run concurrently.
+ * The chain of a player is dropped as soon as it runs empty.
+ */
+final class OrderedCallbackDispatcher implements CallbackDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedCallbackDispatcher.class);
+    private final Executor executor;
+    private final Map<Player, CompletableFuture<Void>> tails = new ConcurrentHashMap<>(); // The last scheduled callback of every player
+
+    OrderedCallbackDispatcher(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void dispatch(TriggeredCallback callback) {
+        final Player player = callback.player();
+        CompletableFuture<Void> tail = tails.compute(player, (p, previous) -> previous == null
+                ? CompletableFuture.runAsync(() -> run(callback), executor)
+                : previous.thenRunAsync(() -> run(callback), executor));
+        tail.whenComplete((result, throwable) -> tails.remove(player, tail));
+    }
+
+    /**
+     * Run a callback, failures are logged so the chain of the player continues.
+     * @param callback The callback to run.
+     */
+    private static void run(TriggeredCallback callback) {
+        try {
+            callback.trigger().fire(callback);
+        } catch (Throwable throwable) {
+            LOGGER.error("Callback {} of {} failed", callback.type(), PlainTextComponentSerializer.plainText().serialize(callback.trigger().getName()), throwable);
+        }
+    }
+}
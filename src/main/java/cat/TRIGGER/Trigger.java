@@ -21,20 +21,31 @@ import net.minestom.server.coordinate.Point;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.server.CachedPacket;
+import net.minestom.server.network.packet.server.SendablePacket;
+import net.minestom.server.network.packet.server.play.BundlePacket;
 import net.minestom.server.network.packet.server.play.ParticlePacket;
 import net.minestom.server.particle.Particle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 /**
  * The core logic of triggers.
  * This system is optimized for static geometry.
- * Triggers can be repositioned using {@link Trigger#setPosition(Pos)}, but they should not be constantly moving, since the collision detection runs per PlayerMoveEvent.
+ * Triggers can be repositioned using {@link TriggerManager#move(Trigger, Pos)}, but they should not be constantly moving, since the collision detection runs per PlayerMoveEvent.
  * Simply put, the shape of a trigger is constructed by "shrink wrapping" all anchors, which is done by the {@link QuickHull3D} algorithm.
  * The resulting triangles make up the shape and are used for the collision detection and debug rendering.
  * Collision detection is based on the Separating Axis Theorem (SAT).
@@ -51,14 +62,38 @@ public class Trigger {
     private Vec position;
 
     private Box boundingBox;
+    private Instance instance;
 
-    private DynamicConsumerWrapper triggeredCallback;
+    private volatile DynamicConsumerWrapper triggeredCallback;
+    private volatile boolean tickThreadCallbacks = false;
+    private volatile Set<TriggeredCallback.Type> subscriptions = EnumSet.allOf(TriggeredCallback.Type.class);
+    private volatile int tickInterval = 1;
+    private final Set<Player> occupants = ConcurrentHashMap.newKeySet(); // Maintained by the TriggerManager
+    private final TriggerMetrics metrics = new TriggerMetrics();
 
-    private final Component name;
-    private RGBLike color; // Debug render color
+    private volatile Component name;
+    private volatile RGBLike color; // Debug render color
     private List<Triangle> triangles;
     private double lastComputationTime = 0.0;
 
+    /**
+     * Stride of one entry in {@link Trigger#planes}: normal x, y, z and the plane offset.
+     */
+    private static final int PLANE_STRIDE = 4;
+    /**
+     * Stride of one entry in {@link Trigger#axes}: axis x, y, z and the min/max projection of the hull onto it.
+     */
+    private static final int AXIS_STRIDE = 5;
+
+    private double[] hullVertices; // Packed x, y, z of the hull vertices, relative to the position
+    private int[][] hullFaces; // Vertex indices of every hull face polygon
+    private double[] localPlanes; // One plane per unique face, relative to the position
+    private double[] localAxes; // Unique separating axes and hull intervals, relative to the position
+    private double[] hullEdges; // Unique unit edge directions of the hull, used by the exact swept test
+    private volatile double[] planes; // World space version of localPlanes
+    private volatile double[] axes; // World space version of localAxes
+    private volatile SendablePacket[] debugPackets; // Built on the first render after every move, recompute or color change
+
     /**
      *
      * @param anchors The points (corners) in 3D space that define the shape of the trigger.
@@ -69,13 +104,32 @@ public class Trigger {
      * @param triggeredCallback The {@link Consumer<TriggeredCallback>} that gets called when a trigger is triggered.
      */
     public Trigger(List<Vec> anchors, Vec position, UUID uuid, Component name, RGBLike color, DynamicConsumerWrapper triggeredCallback) {
+        this(anchors, position, uuid, name, color, triggeredCallback, null);
+    }
+
+    /**
+     * Create a trigger from previously computed {@link Geometry}, which skips the hull computation.
+     * The geometry is only used if it {@link Geometry#matches(List) matches} the anchors, otherwise the hull is computed as usual.
+     * @param anchors The points (corners) in 3D space that define the shape of the trigger.
+     * @param position The origin of the anchors, used to place the trigger in the world.
+     * @param uuid The UUID used to identify the shape. Usually random, should not persist through restarts.
+     * @param name The {@link Component} that holds the display name of the trigger.
+     * @param color The {@link RGBLike} used for debug rendering.
+     * @param triggeredCallback The {@link Consumer<TriggeredCallback>} that gets called when a trigger is triggered.
+     * @param geometry The persisted {@link Geometry} of the trigger, may be null.
+     */
+    public Trigger(List<Vec> anchors, Vec position, UUID uuid, Component name, RGBLike color, DynamicConsumerWrapper triggeredCallback, Geometry geometry) {
         this.anchors = anchors;
         this.position = position;
         this.uuid = uuid;
         this.name = name;
         this.color = color;
         this.triggeredCallback = triggeredCallback;
-        compute();
+        if (geometry != null && geometry.matches(anchors)) {
+            adopt(geometry);
+        } else {
+            compute();
+        }
     }
 
     /**
@@ -97,69 +151,176 @@ public class Trigger {
         Point3d[] vertices = hull.getVertices();
         int[][] faceIndices = hull.getFaces();
 
+        double[] packedVertices = new double[vertices.length * 3];
+        for (int i = 0; i < vertices.length; i++) {
+            packedVertices[i * 3] = vertices[i].x;
+            packedVertices[i * 3 + 1] = vertices[i].y;
+            packedVertices[i * 3 + 2] = vertices[i].z;
+        }
+        this.hullVertices = packedVertices;
+        this.hullFaces = faceIndices;
+        this.triangles = triangulate(packedVertices, faceIndices);
+        computeSeparatingAxes();
+        computeSweepData();
+        bake();
+
+        long endTime = System.nanoTime();
+        long durationInNs = endTime - startTime;
+        this.lastComputationTime = durationInNs / 1000000.0;
+
+
+        boundingBox = computeBoundingBox(2.0);
+    }
+
+    /**
+     * Internally used instead of {@link Trigger#compute()} when the constructor got matching persisted {@link Geometry}.
+     * Only the cheap parts are derived again: the triangles, the world space planes and axes and the bounding box.
+     * @param geometry The persisted {@link Geometry}.
+     */
+    private void adopt(Geometry geometry) {
+        long startTime = System.nanoTime();
+        this.hullVertices = geometry.vertices();
+        this.hullFaces = geometry.faces();
+        this.localPlanes = geometry.planes();
+        this.localAxes = geometry.axes();
+        this.triangles = triangulate(hullVertices, hullFaces);
+        computeSweepData();
+        bake();
+        this.lastComputationTime = (System.nanoTime() - startTime) / 1000000.0;
+        boundingBox = computeBoundingBox(2.0);
+    }
+
+    /**
+     * Internally used to split the hull faces into {@link Triangle triangles} for rendering.
+     * @param vertices The packed hull vertices.
+     * @param faces The vertex indices of every hull face polygon.
+     * @return The triangles of all faces.
+     */
+    private static List<Triangle> triangulate(double[] vertices, int[][] faces) {
         List<Triangle> tris = new ArrayList<>();
-        for (int[] face : faceIndices) {
+        for (int[] face : faces) {
             if (face.length < 3) continue;
 
-            Vec a = toVec(vertices[face[0]]);
+            Vec a = vertex(vertices, face[0]);
             for (int i = 1; i < face.length - 1; i++) {
-                Vec b = toVec(vertices[face[i]]);
-                Vec c = toVec(vertices[face[i + 1]]);
+                Vec b = vertex(vertices, face[i]);
+                Vec c = vertex(vertices, face[i + 1]);
                 Vec normal = computeNormal(a, b, c);
                 tris.add(new Triangle(a, b, c, normal));
             }
         }
-        this.triangles = tris;
-
-        long endTime = System.nanoTime();
-        long durationInNs = endTime - startTime;
-        this.lastComputationTime = durationInNs / 1000000.0;
+        return tris;
+    }
 
+    private static Vec vertex(double[] vertices, int index) {
+        return new Vec(vertices[index * 3], vertices[index * 3 + 1], vertices[index * 3 + 2]);
+    }
 
-        boundingBox = computeBoundingBox(2.0);
+    /**
+     * Get the computed hull of this trigger, so it can be persisted and passed to
+     * {@link Trigger#Trigger(List, Vec, UUID, Component, RGBLike, DynamicConsumerWrapper, Geometry)} instead of computing it again.
+     * @return The {@link Geometry} of the current anchors.
+     */
+    public Geometry getGeometry() {
+        return new Geometry(GEOMETRY_VERSION, Geometry.hash(anchors), hullVertices, hullFaces, localPlanes, localAxes);
     }
 
     /**
      * {@link Trigger#compute() Compute} the hull again. Don't call too often.
+     * A trigger that is added to a {@link TriggerManager} must be recomputed through {@link TriggerManager#recompute(Trigger)} or {@link TriggerManager.Batch#recompute(Trigger)},
+     * calling this directly leaves its old bounding box in the spatial index.
      */
     public void recompute() {
         compute();
     }
 
     /**
-     * Iterate through all {@link Trigger#triangles} of the hull and draw them.
-     * <p>
-     * This can cause a LOT of LAG.
+     * Draw the edges of the hull as one bundle of particles.
+     * Prefer the {@link DebugRenderer} of the {@link TriggerManager}, which culls and limits the particles of every player.
      * @param player The player to render the hull for.
      */
     public void render(Player player) {
-        for (Triangle tri : triangles) {
-            drawLine(player, tri.a().add(position), tri.b().add(position), color);
-            drawLine(player, tri.b().add(position), tri.c().add(position), color);
-            drawLine(player, tri.c().add(position), tri.a().add(position), color);
+        SendablePacket[] packets = debugPackets();
+        for (int start = 0; start < packets.length; start += DebugRenderer.MAX_BUNDLE_SIZE) {
+            player.sendPacket(new BundlePacket());
+            for (int i = start; i < Math.min(packets.length, start + DebugRenderer.MAX_BUNDLE_SIZE); i++) {
+                player.sendPacket(packets[i]);
+            }
+            player.sendPacket(new BundlePacket());
+        }
+    }
+
+    /**
+     * Internally used to get the particle packets that draw the hull, one per particle.
+     * Only the edges of the hull faces are drawn, every edge and every corner once. The packets are built once and encoded
+     * once for all players, until the trigger is moved, recomputed or gets a new color.
+     * @return The cached packets, must not be modified.
+     */
+    SendablePacket[] debugPackets() {
+        SendablePacket[] packets = debugPackets;
+        if (packets == null) {
+            packets = buildDebugPackets();
+            debugPackets = packets;
+        }
+        return packets;
+    }
+
+    private SendablePacket[] buildDebugPackets() {
+        final double[] vertices = hullVertices;
+        final Vec origin = position;
+        final RGBLike debugColor = color;
+        List<SendablePacket> packets = new ArrayList<>();
+        Set<Long> edges = new HashSet<>();
+        boolean[] corners = new boolean[vertices.length / 3];
+        for (int[] face : hullFaces) {
+            for (int i = 0; i < face.length; i++) {
+                int a = face[i];
+                int b = face[(i + 1) % face.length];
+                // Neighbouring faces share their edges, draw each once
+                if (a == b || !edges.add(((long) Math.min(a, b) << 32) | Math.max(a, b))) continue;
+                Vec from = vertex(vertices, a).add(origin);
+                Vec to = vertex(vertices, b).add(origin);
+                int steps = Math.max(1, Math.min(32, 4 * Math.round((float) from.distance(to))));
+                for (int step = 1; step < steps; step++) {
+                    double t = step / (double) steps;
+                    packets.add(particle(from.x() + (to.x() - from.x()) * t, from.y() + (to.y() - from.y()) * t, from.z() + (to.z() - from.z()) * t, debugColor));
+                }
+                corners[a] = true;
+                corners[b] = true;
+            }
+        }
+        for (int i = 0; i < corners.length; i++) {
+            if (!corners[i]) continue;
+            Vec corner = vertex(vertices, i).add(origin);
+            packets.add(particle(corner.x(), corner.y(), corner.z(), debugColor));
         }
+        return packets.toArray(SendablePacket[]::new);
     }
 
     /**
      * Internal part of the collision check.
+     * Runs the Separating Axis Theorem against the precomputed world space axes of the hull, nothing is allocated.
      * @param points The points to check containment for.
      * @return Result of the containment check.
      */
     protected boolean contains(List<Vec> points) {
-        List<Vec> axes = new ArrayList<>();
-        for (Triangle tri : triangles) {
-            axes.add(tri.normal());
-        }
-        axes.add(new Vec(1, 0, 0));
-        axes.add(new Vec(0, 1, 0));
-        axes.add(new Vec(0, 0, 1));
-
-        for (Vec axis : axes) {
-            double[] hullProj = projectOntoAxis(axis, anchors.stream()
-                    .map(p -> p.add(position))
-                    .toList());
-            double[] boxProj = projectOntoAxis(axis, points);
-            if (!overlaps(hullProj, boxProj)) {
+        final double[] axes = this.axes;
+        final int count = points.size();
+        for (int i = 0; i < axes.length; i += AXIS_STRIDE) {
+            final double nx = axes[i];
+            final double ny = axes[i + 1];
+            final double nz = axes[i + 2];
+
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < count; j++) {
+                Vec p = points.get(j);
+                double proj = p.x() * nx + p.y() * ny + p.z() * nz;
+                if (proj < min) min = proj;
+                if (proj > max) max = proj;
+            }
+
+            if (max < axes[i + 3] || min > axes[i + 4]) {
                 return false;
             }
         }
@@ -167,90 +328,352 @@ public class Trigger {
     }
 
     /**
-     * I don't remember what this does. Open a pull request to correct this if you know.
-     * @param a double array.
-     * @param b double array.
-     * @return something about the two arrays.
+     * Allocation free collision check of an axis aligned bounding box against the hull.
+     * The box is projected analytically using its half extents, and the precomputed hull edge x box axis cross axes make the result exact.
+     * @param box The {@link BoundingBox}, usually the one of a player.
+     * @param x The x coordinate the box is placed at.
+     * @param y The y coordinate the box is placed at.
+     * @param z The z coordinate the box is placed at.
+     * @return true if the box intersects the hull, false if not.
      */
-    private boolean overlaps(double[] a, double[] b) {
-        return a[0] <= b[1] && b[0] <= a[1];
+    public boolean contains(BoundingBox box, double x, double y, double z) {
+        final double hx = box.width() / 2;
+        final double hy = box.height() / 2;
+        final double hz = box.depth() / 2;
+        final double cx = x + box.minX() + hx;
+        final double cy = y + box.minY() + hy;
+        final double cz = z + box.minZ() + hz;
+
+        final double[] axes = this.axes;
+        for (int i = 0; i < axes.length; i += AXIS_STRIDE) {
+            final double nx = axes[i];
+            final double ny = axes[i + 1];
+            final double nz = axes[i + 2];
+
+            double center = cx * nx + cy * ny + cz * nz;
+            double radius = hx * Math.abs(nx) + hy * Math.abs(ny) + hz * Math.abs(nz);
+            if (center + radius < axes[i + 3] || center - radius > axes[i + 4]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Convert minestom's {@link Vec} to {@link QuickHull3D}'s {@link Point3d}.
-     * @param p The {@link Point3d} to convert.
-     * @return The converted {@link Vec}.
+     * Allocation free collision check of an axis aligned bounding box that moves along a straight line against the hull.
+     * Used to detect triggers that were crossed in between two positions.
+     * Besides the precomputed axes, the cross products of the motion with the box axes and with every hull edge are tested,
+     * which are the remaining separating axes of the swept box, so the result is exact.
+     * @param box The {@link BoundingBox}, usually the one of a player.
+     * @param fromX The x coordinate of the start position.
+     * @param fromY The y coordinate of the start position.
+     * @param fromZ The z coordinate of the start position.
+     * @param toX The x coordinate of the end position.
+     * @param toY The y coordinate of the end position.
+     * @param toZ The z coordinate of the end position.
+     * @return true if the box touches the hull anywhere along the way, false if not.
      */
-    private static Vec toVec(Point3d p) {
-        return new Vec(p.x, p.y, p.z);
+    public boolean intersectsSwept(BoundingBox box, double fromX, double fromY, double fromZ, double toX, double toY, double toZ) {
+        final double hx = box.width() / 2;
+        final double hy = box.height() / 2;
+        final double hz = box.depth() / 2;
+        final double cx = fromX + box.minX() + hx;
+        final double cy = fromY + box.minY() + hy;
+        final double cz = fromZ + box.minZ() + hz;
+        final double dx = toX - fromX;
+        final double dy = toY - fromY;
+        final double dz = toZ - fromZ;
+
+        final double[] axes = this.axes;
+        for (int i = 0; i < axes.length; i += AXIS_STRIDE) {
+            final double nx = axes[i];
+            final double ny = axes[i + 1];
+            final double nz = axes[i + 2];
+
+            double from = cx * nx + cy * ny + cz * nz;
+            double to = from + dx * nx + dy * ny + dz * nz;
+            double radius = hx * Math.abs(nx) + hy * Math.abs(ny) + hz * Math.abs(nz);
+            if (Math.max(from, to) + radius < axes[i + 3] || Math.min(from, to) - radius > axes[i + 4]) {
+                return false;
+            }
+        }
+
+        // motion cross x, motion cross y and motion cross z
+        if (separatesSwept(0, dz, -dy, cx, cy, cz, hx, hy, hz)) return false;
+        if (separatesSwept(-dz, 0, dx, cx, cy, cz, hx, hy, hz)) return false;
+        if (separatesSwept(dy, -dx, 0, cx, cy, cz, hx, hy, hz)) return false;
+        // motion cross every hull edge
+        final double[] edges = this.hullEdges;
+        for (int i = 0; i < edges.length; i += 3) {
+            double nx = dy * edges[i + 2] - dz * edges[i + 1];
+            double ny = dz * edges[i] - dx * edges[i + 2];
+            double nz = dx * edges[i + 1] - dy * edges[i];
+            if (separatesSwept(nx, ny, nz, cx, cy, cz, hx, hy, hz)) return false;
+        }
+        return true;
     }
 
     /**
-     * Internally used to compute the normal of a {@link Triangle}.
-     * @param a First corner of the {@link Triangle}.
-     * @param b Second corner of the {@link Triangle}.
-     * @param c Third corner of the {@link Triangle}.
-     * @return The normal {@link Vec vector} of the {@link Triangle}.
+     * Internally used to test an axis perpendicular to the motion of a swept box, onto which the box projects the same at every point of the way.
+     * The hull is projected from its vertices, these axes are not precomputed since they depend on the motion.
+     * @return true if the axis separates the swept box from the hull, false if not or if the axis is degenerate.
      */
-    private static Vec computeNormal(Vec a, Vec b, Vec c) {
-        Vec ab = b.sub(a);
-        Vec ac = c.sub(a);
-        return ab.cross(ac).normalize();
+    private boolean separatesSwept(double nx, double ny, double nz, double cx, double cy, double cz, double hx, double hy, double hz) {
+        if (nx * nx + ny * ny + nz * nz < EPSILON * EPSILON) return false;
+        final Vec origin = position;
+        final double[] vertices = hullVertices;
+        final double offset = origin.x() * nx + origin.y() * ny + origin.z() * nz;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertices.length; i += 3) {
+            double proj = vertices[i] * nx + vertices[i + 1] * ny + vertices[i + 2] * nz;
+            if (proj < min) min = proj;
+            if (proj > max) max = proj;
+        }
+        double center = cx * nx + cy * ny + cz * nz - offset;
+        double radius = hx * Math.abs(nx) + hy * Math.abs(ny) + hz * Math.abs(nz);
+        return center + radius < min || center - radius > max;
+    }
+
+    /**
+     * Check if a single point in world space lies inside the hull, using the half-space form of the hull faces.
+     * @param x The x coordinate of the point.
+     * @param y The y coordinate of the point.
+     * @param z The z coordinate of the point.
+     * @return true if the point is inside or on the surface of the hull, false if not.
+     */
+    public boolean contains(double x, double y, double z) {
+        final double[] planes = this.planes;
+        for (int i = 0; i < planes.length; i += PLANE_STRIDE) {
+            if (x * planes[i] + y * planes[i + 1] + z * planes[i + 2] > planes[i + 3] + EPSILON) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Internally used to derive one plane per unique hull face and the unique separating axes from {@link Trigger#hullFaces}.
+     * Coplanar triangles of the same QuickHull face share one plane, parallel face normals share one axis.
+     * The cross products of every unique hull edge direction with the x, y and z axis are added as well,
+     * which makes the SAT exact for axis aligned boxes like player hitboxes.
+     * The results are relative to the {@link Trigger#position}, {@link Trigger#bake()} moves them into world space.
+     */
+    private void computeSeparatingAxes() {
+        final double[] vertices = hullVertices;
+        double[] planeBuffer = new double[hullFaces.length * PLANE_STRIDE];
+        int planeCount = 0;
+        final double[] edgeBuffer = edgeDirections(vertices, hullFaces);
+        final int edgeCount = edgeBuffer.length / 3;
+        double[] axisBuffer = new double[(3 + hullFaces.length + edgeCount * 3) * AXIS_STRIDE];
+        int axisCount = 0;
+
+        axisCount = addAxis(axisBuffer, axisCount, 1, 0, 0);
+        axisCount = addAxis(axisBuffer, axisCount, 0, 1, 0);
+        axisCount = addAxis(axisBuffer, axisCount, 0, 0, 1);
+
+        for (int[] face : hullFaces) {
+            if (face.length < 3) continue;
+
+            // Newell's method, robust against collinear vertices in the face polygon
+            double nx = 0, ny = 0, nz = 0;
+            for (int i = 0; i < face.length; i++) {
+                int current = face[i] * 3;
+                int next = face[(i + 1) % face.length] * 3;
+                nx += (vertices[current + 1] - vertices[next + 1]) * (vertices[current + 2] + vertices[next + 2]);
+                ny += (vertices[current + 2] - vertices[next + 2]) * (vertices[current] + vertices[next]);
+                nz += (vertices[current] - vertices[next]) * (vertices[current + 1] + vertices[next + 1]);
+            }
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length < EPSILON) continue;
+            nx /= length;
+            ny /= length;
+            nz /= length;
+
+            boolean duplicate = false;
+            for (int i = 0; i < planeCount * PLANE_STRIDE; i += PLANE_STRIDE) {
+                if (planeBuffer[i] * nx + planeBuffer[i + 1] * ny + planeBuffer[i + 2] * nz > 1 - EPSILON) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                int offset = planeCount * PLANE_STRIDE;
+                int first = face[0] * 3;
+                planeBuffer[offset] = nx;
+                planeBuffer[offset + 1] = ny;
+                planeBuffer[offset + 2] = nz;
+                planeBuffer[offset + 3] = nx * vertices[first] + ny * vertices[first + 1] + nz * vertices[first + 2];
+                planeCount++;
+            }
+
+            axisCount = addAxis(axisBuffer, axisCount, nx, ny, nz);
+        }
+
+        // edge cross x, edge cross y and edge cross z
+        for (int i = 0; i < edgeCount * 3; i += 3) {
+            double ex = edgeBuffer[i];
+            double ey = edgeBuffer[i + 1];
+            double ez = edgeBuffer[i + 2];
+            axisCount = addCrossAxis(axisBuffer, axisCount, 0, ez, -ey);
+            axisCount = addCrossAxis(axisBuffer, axisCount, -ez, 0, ex);
+            axisCount = addCrossAxis(axisBuffer, axisCount, ey, -ex, 0);
+        }
+
+        this.localPlanes = Arrays.copyOf(planeBuffer, planeCount * PLANE_STRIDE);
+        this.localAxes = Arrays.copyOf(axisBuffer, axisCount * AXIS_STRIDE);
+    }
+
+    /**
+     * Internally used to collect the unique edge directions of the hull, every edge is shared by two faces.
+     * @param vertices The packed hull vertices.
+     * @param faces The vertex indices of every hull face polygon.
+     * @return The packed unit edge directions, no two of them parallel.
+     */
+    private static double[] edgeDirections(double[] vertices, int[][] faces) {
+        int edgeCount = 0;
+        for (int[] face : faces) {
+            edgeCount += face.length;
+        }
+        double[] edgeBuffer = new double[edgeCount * 3];
+        edgeCount = 0;
+        for (int[] face : faces) {
+            for (int i = 0; i < face.length; i++) {
+                int current = face[i] * 3;
+                int next = face[(i + 1) % face.length] * 3;
+                double ex = vertices[next] - vertices[current];
+                double ey = vertices[next + 1] - vertices[current + 1];
+                double ez = vertices[next + 2] - vertices[current + 2];
+                double edgeLength = Math.sqrt(ex * ex + ey * ey + ez * ez);
+                if (edgeLength < EPSILON) continue;
+                ex /= edgeLength;
+                ey /= edgeLength;
+                ez /= edgeLength;
+
+                boolean parallel = false;
+                for (int j = 0; j < edgeCount * 3; j += 3) {
+                    if (Math.abs(edgeBuffer[j] * ex + edgeBuffer[j + 1] * ey + edgeBuffer[j + 2] * ez) > 1 - EPSILON) {
+                        parallel = true;
+                        break;
+                    }
+                }
+                if (parallel) continue;
+                edgeBuffer[edgeCount * 3] = ex;
+                edgeBuffer[edgeCount * 3 + 1] = ey;
+                edgeBuffer[edgeCount * 3 + 2] = ez;
+                edgeCount++;
+            }
+        }
+        return Arrays.copyOf(edgeBuffer, edgeCount * 3);
     }
 
     /**
-     * Internally used to project a {@link List} of points onto an axis.
-     * @param axis The axis {@link Vec} to project the points onto.
-     * @param points The points to project onto the axis.
-     * @return The projected points.
+     * Internally used to derive what the exact swept test needs beyond the separating axes: the hull edge directions.
      */
-    private double[] projectOntoAxis(Vec axis, List<Vec> points) {
+    private void computeSweepData() {
+        this.hullEdges = edgeDirections(hullVertices, hullFaces);
+    }
+
+    /**
+     * Internally used to normalize and add a cross product axis, degenerate axes of parallel edges are skipped.
+     * @param buffer The packed axis buffer, needs to be large enough for one more axis.
+     * @param count The current amount of axes in the buffer.
+     * @param x The x component of the cross product.
+     * @param y The y component of the cross product.
+     * @param z The z component of the cross product.
+     * @return The new amount of axes in the buffer.
+     */
+    private int addCrossAxis(double[] buffer, int count, double x, double y, double z) {
+        double length = Math.sqrt(x * x + y * y + z * z);
+        if (length < EPSILON) return count;
+        return addAxis(buffer, count, x / length, y / length, z / length);
+    }
+
+    /**
+     * Internally used to add a unit axis to a packed axis buffer, unless a parallel axis already exists.
+     * The hull interval of the axis is computed from {@link Trigger#hullVertices}.
+     * @param buffer The packed axis buffer, needs to be large enough for one more axis.
+     * @param count The current amount of axes in the buffer.
+     * @param nx The x component of the unit axis.
+     * @param ny The y component of the unit axis.
+     * @param nz The z component of the unit axis.
+     * @return The new amount of axes in the buffer.
+     */
+    private int addAxis(double[] buffer, int count, double nx, double ny, double nz) {
+        for (int i = 0; i < count * AXIS_STRIDE; i += AXIS_STRIDE) {
+            if (Math.abs(buffer[i] * nx + buffer[i + 1] * ny + buffer[i + 2] * nz) > 1 - EPSILON) {
+                return count;
+            }
+        }
+
         double min = Double.POSITIVE_INFINITY;
         double max = Double.NEGATIVE_INFINITY;
-
-        for (Vec p : points) {
-            double proj = p.dot(axis);
+        for (int i = 0; i < hullVertices.length; i += 3) {
+            double proj = hullVertices[i] * nx + hullVertices[i + 1] * ny + hullVertices[i + 2] * nz;
             if (proj < min) min = proj;
             if (proj > max) max = proj;
         }
 
-        return new double[]{min, max};
+        int offset = count * AXIS_STRIDE;
+        buffer[offset] = nx;
+        buffer[offset + 1] = ny;
+        buffer[offset + 2] = nz;
+        buffer[offset + 3] = min;
+        buffer[offset + 4] = max;
+        return count + 1;
     }
 
     /**
-     * Draws a line using particles from one point to another.
-     * Amount of particles is scaled based off of the length of the line, limited to 32.
-     * <p>
-     * This can cause a LOT of LAG.
-     * @param player The player to draw the line for.
-     * @param from The starting positon of the line.
-     * @param to The target position of the line.
-     * @param debugColor The color of the particles that the line is drawn with.
+     * Internally used to move the precomputed planes and axes into world space, based on the current {@link Trigger#position}.
+     * Cheap enough to be called on every {@link Trigger#setPosition(Pos)}, the hull itself is not recomputed.
      */
-    private void drawLine(Player player, Point from, Point to, RGBLike debugColor) {
-        Vec start = new Vec(from.x(), from.y(), from.z());
-        Vec end = new Vec(to.x(), to.y(), to.z());
-        int steps = Math.min(32, 4 * Math.round((float) start.distance(end)));
+    private void bake() {
+        final double px = position.x();
+        final double py = position.y();
+        final double pz = position.z();
+
+        double[] worldPlanes = localPlanes.clone();
+        for (int i = 0; i < worldPlanes.length; i += PLANE_STRIDE) {
+            worldPlanes[i + 3] += worldPlanes[i] * px + worldPlanes[i + 1] * py + worldPlanes[i + 2] * pz;
+        }
 
+        double[] worldAxes = localAxes.clone();
+        for (int i = 0; i < worldAxes.length; i += AXIS_STRIDE) {
+            double offset = worldAxes[i] * px + worldAxes[i + 1] * py + worldAxes[i + 2] * pz;
+            worldAxes[i + 3] += offset;
+            worldAxes[i + 4] += offset;
+        }
 
-        for (int i = 0; i <= steps; i++) {
-            double t = i / (double) steps;
-            double x = start.x() + (end.x() - start.x()) * t;
-            double y = start.y() + (end.y() - start.y()) * t;
-            double z = start.z() + (end.z() - start.z()) * t;
+        this.planes = worldPlanes;
+        this.axes = worldAxes;
+        this.debugPackets = null;
+    }
 
-            ParticlePacket packet = new ParticlePacket(
-                    Particle.TRAIL.withProperties(new Pos(x, y, z), debugColor, 7),
-                    true, true,
-                    x, y, z,
-                    0f, 0f, 0f, 0f, 1
-            );
-            player.sendPacket(packet);
-        }
+    /**
+     * Internally used to compute the normal of a {@link Triangle}.
+     * @param a First corner of the {@link Triangle}.
+     * @param b Second corner of the {@link Triangle}.
+     * @param c Third corner of the {@link Triangle}.
+     * @return The normal {@link Vec vector} of the {@link Triangle}.
+     */
+    private static Vec computeNormal(Vec a, Vec b, Vec c) {
+        Vec ab = b.sub(a);
+        Vec ac = c.sub(a);
+        return ab.cross(ac).normalize();
+    }
+
+    private static SendablePacket particle(double x, double y, double z, RGBLike debugColor) {
+        return new CachedPacket(new ParticlePacket(
+                Particle.TRAIL.withProperties(new Pos(x, y, z), debugColor, 7),
+                true, true,
+                x, y, z,
+                0f, 0f, 0f, 0f, 1
+        ));
     }
 
     /**
      * Calculates the corners of a players hitbox.
+     * Allocates a new list on every call, collision checks should use {@link Trigger#contains(BoundingBox, double, double, double)} instead.
      * @param basePos The position of the player.
      * @param player The player.
      * @return A list of the hitbox corners.
@@ -287,11 +710,14 @@ public class Trigger {
      * @return true if all points are sufficiently spaced, false if they are too close.
      */
     public static boolean validatePoints(List<Vec> points) {
-        for (int i = 0; i < points.size(); i++) {
-            Vec p1 = points.get(i);
+        // Sorted by x, only points whose x coordinates are closer than EPSILON need to be compared
+        Vec[] sorted = points.toArray(Vec[]::new);
+        Arrays.sort(sorted, (a, b) -> Double.compare(a.x(), b.x()));
+        for (int i = 0; i < sorted.length; i++) {
+            Vec p1 = sorted[i];
 
-            for (int j = i + 1; j < points.size(); j++) {
-                Vec p2 = points.get(j);
+            for (int j = i + 1; j < sorted.length && sorted[j].x() - p1.x() < EPSILON; j++) {
+                Vec p2 = sorted[j];
 
                 double dx = p1.x() - p2.x();
                 double dy = p1.y() - p2.y();
@@ -420,6 +846,57 @@ public class Trigger {
                 (int) Math.ceil(maxZ + padding));
     }
 
+    /**
+     * The version of the {@link Geometry} layout, persisted geometry of another version is computed again.
+     */
+    public static final int GEOMETRY_VERSION = 1;
+
+    /**
+     * The computed hull of a trigger, relative to its position. Persisting it lets loading skip QuickHull and the axis computation.
+     * The arrays are shared with the trigger and must not be modified.
+     * @param version The {@link Trigger#GEOMETRY_VERSION} the geometry was computed with.
+     * @param hash The {@link Geometry#hash(List) hash} of the anchors the geometry was computed from.
+     * @param vertices Packed x, y, z of the hull vertices.
+     * @param faces Vertex indices of every hull face polygon.
+     * @param planes One plane per unique face: normal x, y, z and the plane offset.
+     * @param axes Unique separating axes: axis x, y, z and the min/max projection of the hull onto it.
+     */
+    public record Geometry(int version, long hash, double[] vertices, int[][] faces, double[] planes, double[] axes) {
+
+        /**
+         * Check if this geometry can be used for a trigger with the given anchors.
+         * The version and anchor hash have to match and the arrays have to be well-formed.
+         * @param anchors The anchors of the trigger.
+         * @return true if the geometry can be trusted, false if the hull has to be computed again.
+         */
+        public boolean matches(List<Vec> anchors) {
+            if (version != GEOMETRY_VERSION || hash != hash(anchors)) return false;
+            if (vertices.length % 3 != 0 || planes.length % PLANE_STRIDE != 0 || axes.length % AXIS_STRIDE != 0) return false;
+            int vertexCount = vertices.length / 3;
+            for (int[] face : faces) {
+                for (int index : face) {
+                    if (index < 0 || index >= vertexCount) return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Hash a list of anchors, used to detect geometry that does not belong to the anchors anymore.
+         * @param anchors The anchors.
+         * @return The 64-bit FNV-1a hash of the version and the anchor coordinates.
+         */
+        public static long hash(List<Vec> anchors) {
+            long hash = 0xcbf29ce484222325L ^ GEOMETRY_VERSION;
+            for (Vec anchor : anchors) {
+                hash = (hash ^ Double.doubleToLongBits(anchor.x())) * 0x100000001b3L;
+                hash = (hash ^ Double.doubleToLongBits(anchor.y())) * 0x100000001b3L;
+                hash = (hash ^ Double.doubleToLongBits(anchor.z())) * 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+
     /**
      * A representation of a simple triangle and its normal used for calculations in 3D space.
      * @param a The first {@link Point} of the triangle.
@@ -433,6 +910,34 @@ public class Trigger {
         }
     }
 
+    /**
+     * Run the callback of this trigger, timing it while {@link TriggerGlobals#collectMetrics} is enabled.
+     * Custom {@link CallbackDispatcher dispatchers} should run callbacks through this method.
+     * @param callback The callback data, containing the player and this trigger.
+     */
+    public void fire(TriggeredCallback callback) {
+        DynamicConsumerWrapper consumer = triggeredCallback;
+        if (consumer == null) return;
+        if (!TriggerGlobals.collectMetrics) {
+            consumer.accept(callback);
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            consumer.accept(callback);
+        } finally {
+            metrics.callback(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get the runtime counters of this trigger, only updated while {@link TriggerGlobals#collectMetrics} is enabled.
+     * @return The {@link TriggerMetrics}.
+     */
+    public TriggerMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Get how long the last {@link Trigger#compute()} or {@link Trigger#recompute()} call took in milliseconds.
      * @return How long the last {@link Trigger#compute()} or {@link Trigger#recompute()} call took in milliseconds, returns zero if there was no last call.
@@ -452,10 +957,14 @@ public class Trigger {
     /**
      * Set a new base position for the hull.
      * Basically teleportation.
+     * A trigger that is added to a {@link TriggerManager} must be moved through {@link TriggerManager#move(Trigger, Pos)} or {@link TriggerManager.Batch#move(Trigger, Pos)},
+     * calling this directly leaves its old bounding box in the spatial index.
      * @param newPos The new hull position.
      */
     public void setPosition(Pos newPos) {
         position = newPos.asVec();
+        boundingBox = computeBoundingBox(2.0);
+        bake();
     }
 
     /**
@@ -491,11 +1000,112 @@ public class Trigger {
     }
 
     /**
-     * Set a new callback {@link Consumer} for this trigger.
+     * Set a new callback {@link Consumer} for this trigger, the script of the previous callback is {@link DynamicConsumerWrapper#release() released}.
      * @param triggeredCallback The new {@link TriggeredCallback} {@link Consumer} of this {@link Trigger}.
      */
     public void setTriggeredCallback(DynamicConsumerWrapper triggeredCallback) {
+        DynamicConsumerWrapper previous = this.triggeredCallback;
         this.triggeredCallback = triggeredCallback;
+        if (previous != null && previous != triggeredCallback) previous.release();
+    }
+
+    /**
+     * Check if this trigger wants callbacks of a {@link TriggeredCallback.Type}.
+     * Unsubscribed types are neither allocated nor dispatched by the {@link TriggerManager}.
+     * @param type The {@link TriggeredCallback.Type} to check.
+     * @return true if the trigger is subscribed to the type, false if not.
+     */
+    public boolean isSubscribed(TriggeredCallback.Type type) {
+        return subscriptions.contains(type);
+    }
+
+    /**
+     * Get the {@link TriggeredCallback.Type types} of callbacks this trigger wants. All types by default.
+     * @return An unmodifiable view of the subscribed types.
+     */
+    public Set<TriggeredCallback.Type> getSubscriptions() {
+        return Collections.unmodifiableSet(subscriptions);
+    }
+
+    /**
+     * Set the {@link TriggeredCallback.Type types} of callbacks this trigger wants.
+     * Most triggers only care about {@link TriggeredCallback.Type#ENTERED} and {@link TriggeredCallback.Type#EXITED},
+     * leaving out {@link TriggeredCallback.Type#TICK} removes the most frequent callback entirely.
+     * @param subscriptions The subscribed types.
+     */
+    public void setSubscriptions(Collection<TriggeredCallback.Type> subscriptions) {
+        Set<TriggeredCallback.Type> types = EnumSet.noneOf(TriggeredCallback.Type.class);
+        types.addAll(subscriptions);
+        this.subscriptions = types;
+    }
+
+    /**
+     * Get every how many server ticks {@link TriggeredCallback.Type#TICK} is fired for each player inside.
+     * @return The tick interval, 1 means every tick.
+     */
+    public int getTickInterval() {
+        return tickInterval;
+    }
+
+    /**
+     * Set every how many server ticks {@link TriggeredCallback.Type#TICK} is fired for each player inside.
+     * @param tickInterval The tick interval, at least 1.
+     */
+    public void setTickInterval(int tickInterval) {
+        if (tickInterval < 1) {
+            throw new IllegalArgumentException("Tick interval must be at least 1, got " + tickInterval);
+        }
+        this.tickInterval = tickInterval;
+    }
+
+    /**
+     * Get the players that are currently inside this trigger, according to the {@link TriggerManager} it was added to.
+     * @return An unmodifiable view of the players inside this trigger.
+     */
+    public Set<Player> getOccupants() {
+        return Collections.unmodifiableSet(occupants);
+    }
+
+    /**
+     * Internally used by the {@link TriggerManager} to track the players inside.
+     * @param player The player that entered.
+     * @return true if the player was not inside yet.
+     */
+    boolean addOccupant(Player player) {
+        return occupants.add(player);
+    }
+
+    /**
+     * Internally used by the {@link TriggerManager} to track the players inside.
+     * @param player The player that exited.
+     * @return true if the player was inside.
+     */
+    boolean removeOccupant(Player player) {
+        return occupants.remove(player);
+    }
+
+    /**
+     * Internally used by the {@link TriggerManager} once this trigger is removed.
+     */
+    void clearOccupants() {
+        occupants.clear();
+    }
+
+    /**
+     * Get if the callbacks of this trigger always run on the tick thread, ignoring the {@link CallbackDispatcher} of the {@link TriggerManager}.
+     * @return true if the callbacks always run on the tick thread, false if not.
+     */
+    public boolean isTickThreadCallbacks() {
+        return tickThreadCallbacks;
+    }
+
+    /**
+     * Make the callbacks of this trigger always run on the tick thread, even if the {@link TriggerManager} uses an asynchronous {@link CallbackDispatcher}.
+     * Needed for callbacks that modify the world, e.g. placing blocks or spawning entities.
+     * @param tickThreadCallbacks true to always run the callbacks on the tick thread.
+     */
+    public void setTickThreadCallbacks(boolean tickThreadCallbacks) {
+        this.tickThreadCallbacks = tickThreadCallbacks;
     }
 
     /**
@@ -531,6 +1141,7 @@ public class Trigger {
      */
     public void setColor(RGBLike color) {
         this.color = color;
+        this.debugPackets = null;
     }
 
     /**
@@ -541,6 +1152,14 @@ public class Trigger {
         return name;
     }
 
+    /**
+     * Set the display name of the trigger.
+     * @param name The new {@link Component} that holds the display name of the trigger.
+     */
+    public void setName(Component name) {
+        this.name = name;
+    }
+
     /**
      * Get the base anchors of the hull.
      * @return The base anchors of the hull.
@@ -550,5 +1169,23 @@ public class Trigger {
     }
 
     public Box getBoundingBox() {return boundingBox;}
+
+    /**
+     * Get the {@link Instance} this trigger is bound to.
+     * @return The {@link Instance} of this trigger, null if it was not bound yet.
+     */
+    public Instance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Bind this trigger to an {@link Instance}.
+     * Only players in this instance can trigger it.
+     * Has to be called before adding the trigger to a {@link TriggerManager}, remove it from the manager before rebinding it.
+     * @param instance The {@link Instance} this trigger is bound to.
+     */
+    public void setInstance(Instance instance) {
+        this.instance = instance;
+    }
 }
 
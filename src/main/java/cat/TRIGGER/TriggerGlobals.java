@@ -20,6 +20,9 @@ import net.minestom.server.codec.Codec;
 import net.minestom.server.codec.StructCodec;
 import net.minestom.server.coordinate.Vec;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * A collection of global objects that are used across the system.
  */
@@ -27,6 +30,18 @@ public final class TriggerGlobals {
     public static TriggerTypeAdapter triggerTypeAdapter = new TriggerTypeAdapter();
     public static Gson GSON = new GsonBuilder().setPrettyPrinting().registerTypeAdapter(Trigger.class, triggerTypeAdapter).create();
 
+    /**
+     * If the computed {@link Trigger.Geometry} is written by {@link TriggerGlobals#CODEC} and the {@link TriggerTypeAdapter}.
+     * Loading such a trigger skips the hull computation, at the cost of larger files.
+     */
+    public static volatile boolean writeGeometry = false;
+
+    /**
+     * If runtime metrics are collected, see {@link Trigger#getMetrics()} and {@link TriggerManager#snapshotMetrics()}.
+     * Can be toggled at any time, while disabled the hot paths only read this flag.
+     */
+    public static volatile boolean collectMetrics = false;
+
     private static Codec<RGBLike> RGB_CODEC = StructCodec.struct(
             "red", Codec.INT, RGBLike::red,
             "green", Codec.INT, RGBLike::green,
@@ -41,6 +56,20 @@ public final class TriggerGlobals {
             Vec::new
     );
 
+    private static Codec<Trigger.Geometry> GEOMETRY_CODEC = StructCodec.struct(
+            "version", Codec.INT, Trigger.Geometry::version,
+            "hash", Codec.LONG, Trigger.Geometry::hash,
+            "vertices", Codec.DOUBLE.list(), geometry -> toList(geometry.vertices()),
+            "faces", Codec.INT.list().list(), geometry -> Arrays.stream(geometry.faces()).map(face -> Arrays.stream(face).boxed().toList()).toList(),
+            "planes", Codec.DOUBLE.list(), geometry -> toList(geometry.planes()),
+            "axes", Codec.DOUBLE.list(), geometry -> toList(geometry.axes()),
+            (version, hash, vertices, faces, planes, axes) -> new Trigger.Geometry(version, hash,
+                    toArray(vertices),
+                    faces.stream().map(face -> face.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new),
+                    toArray(planes),
+                    toArray(axes))
+    );
+
     public static Codec<Trigger> CODEC = StructCodec.struct(
             "anchors", VEC_CODEC.list(), Trigger::getAnchors,
             "position", VEC_CODEC, Trigger::getPosition,
@@ -48,6 +77,22 @@ public final class TriggerGlobals {
             "name", Codec.COMPONENT, Trigger::getName,
             "color", RGB_CODEC, Trigger::getColor,
             "callback", DynamicConsumerWrapper.CODEC, Trigger::getTriggeredCallback,
-            Trigger::new
+            "events", Codec.Enum(TriggeredCallback.Type.class).list().optional(List.of(TriggeredCallback.Type.values())), trigger -> List.copyOf(trigger.getSubscriptions()),
+            "tickInterval", Codec.INT.optional(1), Trigger::getTickInterval,
+            "geometry", GEOMETRY_CODEC.optional(), trigger -> writeGeometry ? trigger.getGeometry() : null,
+            (anchors, position, uuid, name, color, callback, events, tickInterval, geometry) -> {
+                Trigger trigger = new Trigger(anchors, position, uuid, name, color, callback, geometry);
+                trigger.setSubscriptions(events);
+                trigger.setTickInterval(tickInterval);
+                return trigger;
+            }
     );
-}
\ No newline at end of file
+
+    private static List<Double> toList(double[] values) {
+        return Arrays.stream(values).boxed().toList();
+    }
+
+    private static double[] toArray(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+}
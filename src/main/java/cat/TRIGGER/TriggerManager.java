@@ -13,14 +13,16 @@ package cat.TRIGGER;
 import cat.TRIGGER.config.TriggerDefinition;
 import cat.TRIGGER.config.VecTypeSerializer;
 import cat.TRIGGER.dynamic.DynamicConsumerWrapper;
+import cat.TRIGGER.dynamic.RuntimeCompiler;
+import cat.TRIGGER.index.SpatialIndex;
+import cat.TRIGGER.index.TriggerTree;
 import com.jamieswhiteshirt.rtree3i.Box;
-import com.jamieswhiteshirt.rtree3i.ConfigurationBuilder;
-import com.jamieswhiteshirt.rtree3i.RTreeMap;
-import com.jamieswhiteshirt.rtree3i.Selection;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import net.minestom.server.MinecraftServer;
+import net.minestom.server.collision.BoundingBox;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.Player;
@@ -28,7 +30,12 @@ import net.minestom.server.event.Event;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.event.entity.EntitySpawnEvent;
 import net.minestom.server.event.entity.EntityTeleportEvent;
+import net.minestom.server.event.instance.InstanceUnregisterEvent;
+import net.minestom.server.event.instance.RemoveEntityFromInstanceEvent;
+import net.minestom.server.event.player.PlayerDisconnectEvent;
 import net.minestom.server.event.player.PlayerMoveEvent;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.timer.Task;
 import net.minestom.server.timer.TaskSchedule;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.hocon.HoconConfigurationLoader;
@@ -39,12 +46,29 @@ import ninja.leaping.configurate.objectmapping.serialize.TypeSerializerCollectio
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 
 /**
@@ -55,25 +79,78 @@ public class TriggerManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TriggerManager.class);
     private static final TypeSerializerCollection serializers = TypeSerializerCollection.create().register(new VecTypeSerializer());
-    private RTreeMap<Box, Trigger> triggers = RTreeMap.create(new ConfigurationBuilder().star().build());
+    private final Map<Instance, SpatialIndex> triggers = new ConcurrentHashMap<>(); // One spatial index per instance
+    private final Supplier<SpatialIndex> indexFactory;
+    private final Map<Player, Set<Trigger>> occupancy = new ConcurrentHashMap<>(); // The triggers every player is currently inside
+    private final Map<Player, Pos> dirtyPlayers = new ConcurrentHashMap<>(); // Players that moved since the last batch and where they started, only used by EvaluationMode.TICK_BATCHED
+    private volatile EvaluationMode evaluationMode = EvaluationMode.INLINE;
+    private volatile ForkJoinPool evaluationPool = ForkJoinPool.commonPool();
+    private volatile CallbackDispatcher callbackDispatcher = CallbackDispatcher.SYNC;
+    private final Set<Trigger> tickingTriggers = ConcurrentHashMap.newKeySet(); // Triggers that had occupants since the last tick
+    private long tickCounter = 0;
 
-    private int totalTriangles = 0;
+    private final AtomicInteger totalTriangles = new AtomicInteger();
+    private final Histogram handleNanos = new Histogram(); // Latency of handleTriggers, only recorded while metrics are collected
+    private final Histogram candidatesPerQuery = new Histogram();
+    private final Histogram dispatchNanos = new Histogram(); // Time spent passing the callbacks of one player move to the sink
+    private final ThreadLocal<Query> queries = ThreadLocal.withInitial(Query::new);
     private final boolean debug;
+    private final DebugRenderer debugRenderer = new DebugRenderer(this);
+    private final Task debugTask; // null if not in debug mode
+    private Task tickTask; // Scheduled by the first registerEvents call, guarded by this
 
     /**
-     * The default constructor
-     * @param debug Debug mode, enables rendering. <p> DEBUG RENDERING CAN CAUSE BIG LAG.
+     * The default constructor, uses a {@link TriggerTree} as spatial index.
+     * @param debug Debug mode, enables rendering, see {@link TriggerManager#getDebugRenderer()}.
      */
     public TriggerManager(boolean debug) {
+        this(debug, TriggerTree::empty);
+    }
+
+    /**
+     * Create a manager with a custom {@link SpatialIndex} implementation, for example {@link cat.TRIGGER.index.SectionGrid SectionGrid} for small and dense triggers.
+     * @param debug Debug mode, enables rendering, see {@link TriggerManager#getDebugRenderer()}.
+     * @param indexFactory Supplies the empty {@link SpatialIndex} every instance starts with, e.g. {@code SectionGrid::empty}.
+     */
+    public TriggerManager(boolean debug, Supplier<SpatialIndex> indexFactory) {
         this.debug = debug;
+        this.indexFactory = indexFactory;
+
+        this.debugTask = debug
+                ? MinecraftServer.getSchedulerManager().buildTask(debugRenderer::tick).repeat(TaskSchedule.nextTick()).schedule()
+                : null;
+    }
+
+    /**
+     * Create a new trigger and add it to the spatial index of an instance.
+     * @param instance The {@link Instance} the trigger is bound to.
+     * @param anchors The points (corners) in 3D space that define the shape of the trigger.
+     * @param position The origin of the anchors, used to place the trigger in the world.
+     * @param uuid The UUID used to identify the shape.
+     * @param name The {@link Component} that holds the display name of the trigger.
+     * @param color The {@link TextColor} used for debug rendering.
+     * @param triggeredCallback The callback that gets called when the trigger is triggered.
+     * @return The new trigger.
+     */
+    public Trigger create(Instance instance, List<Vec> anchors, Vec position, UUID uuid, Component name, TextColor color, DynamicConsumerWrapper triggeredCallback) {
+        final Trigger trigger = new Trigger(prepareAnchors(anchors, name), position, uuid, name, color, triggeredCallback);
 
         if (debug) {
-            MinecraftServer.getSchedulerManager().buildTask(() -> MinecraftServer.getConnectionManager().getOnlinePlayers().forEach(player -> triggers.values()
-                            .forEach(trigger -> trigger.render(player)))).repeat(TaskSchedule.nextTick()).schedule();
+            DecimalFormat df = new DecimalFormat("###.###");
+            LOGGER.info("Hull computation of {} took {}ms", PlainTextComponentSerializer.plainText().serialize(trigger.getName()), df.format(trigger.getLastComputationTime()));
         }
+
+        add(instance, trigger);
+        return trigger;
     }
 
-    public Trigger create(List<Vec> anchors, Vec position, UUID uuid, Component name, TextColor color, DynamicConsumerWrapper triggeredCallback) {
+    /**
+     * Internally used to validate anchors and extrude 2D shapes before the hull is computed.
+     * @param anchors The anchors of the trigger.
+     * @param name The name of the trigger, used for warnings.
+     * @return The anchors to compute the hull of.
+     */
+    private static List<Vec> prepareAnchors(List<Vec> anchors, Component name) {
         if (!Trigger.validatePoints(anchors)) LOGGER.warn("Detected very close points for {}, collision and/or rendering may break due to numerical instability, use at your own risk", PlainTextComponentSerializer.plainText().serialize(name));
 
         /*---------------< EXTRUDE 2D INTO 3D >---------------*/
@@ -97,17 +174,7 @@ public class TriggerManager {
 
             anchors = List.copyOf(extrudedPoints);
         }
-
-        final Trigger trigger = new Trigger(anchors, position, uuid, name, color, triggeredCallback);
-
-        if (debug) {
-            DecimalFormat df = new DecimalFormat("###.###");
-            LOGGER.info("Hull computation of {} took {}ms", PlainTextComponentSerializer.plainText().serialize(trigger.getName()), df.format(trigger.getLastComputationTime()));
-        }
-
-        add(trigger);
-        totalTriangles += trigger.getTriangles().size();
-        return trigger;
+        return anchors;
     }
 
     /**
@@ -116,96 +183,803 @@ public class TriggerManager {
      */
     public void playerMoveEvent(PlayerMoveEvent event) {
         final Player player = event.getPlayer();
-        final Pos oldPos = player.getPosition();
-        final Pos newPos = event.getNewPosition();
-
-        List<Vec> previousPoints = Trigger.getHitboxPoints(oldPos, player);
-        List<Vec> currentPoints = Trigger.getHitboxPoints(newPos, player);
-        Box queryBox = Box.create(
-                (int) Math.floor(Math.min(oldPos.x(), newPos.x()) - 1.5),
-                (int) Math.floor(Math.min(oldPos.y(), newPos.y())),
-                (int) Math.floor(Math.min(oldPos.z(), newPos.z()) - 1.5),
-                (int) Math.ceil(Math.max(oldPos.x(), newPos.x()) + 1.5),
-                (int) Math.ceil(Math.max(oldPos.y(), newPos.y()) + 3),
-                (int) Math.ceil(Math.max(oldPos.z(), newPos.z()) + 1.5)
-        );
-        handleTriggers(player, previousPoints, currentPoints, queryBox);
+        if (evaluationMode == EvaluationMode.TICK_BATCHED) {
+            // Only the first position of the tick is kept, the last one is the player position once the batch runs
+            dirtyPlayers.putIfAbsent(player, player.getPosition());
+            return;
+        }
+        handleTriggers(player, player.getInstance(), player.getPosition(), event.getNewPosition(), this::dispatch);
     }
 
     public void entityTeleportEvent(EntityTeleportEvent event) {
         if (event.getEntity() instanceof Player player) {
-            final Pos oldPos = player.getPosition();
-            final Pos newPos = event.getNewPosition();
-
-            List<Vec> previousPoints = Trigger.getHitboxPoints(oldPos, player);
-            List<Vec> currentPoints = Trigger.getHitboxPoints(newPos, player);
-            Box queryBox = Box.create(
-                    (int) Math.floor(Math.min(oldPos.x(), newPos.x()) - 1.5),
-                    (int) Math.floor(Math.min(oldPos.y(), newPos.y()) - 1.5),
-                    (int) Math.floor(Math.min(oldPos.z(), newPos.z()) - 1.5),
-                    (int) Math.ceil(Math.max(oldPos.x(), newPos.x()) + 1.5),
-                    (int) Math.ceil(Math.max(oldPos.y(), newPos.y()) + 1.5),
-                    (int) Math.ceil(Math.max(oldPos.z(), newPos.z()) + 1.5)
-            );
-
-            handleTriggers(player, previousPoints, currentPoints, queryBox);
+            // Teleports are not swept, nothing in between the old and new position is crossed
+            if (evaluationMode == EvaluationMode.TICK_BATCHED) {
+                // The way the player walked this tick before the teleport still counts
+                Pos start = dirtyPlayers.remove(player);
+                if (start != null && player.getInstance() != null) {
+                    handleTriggers(player, player.getInstance(), start, player.getPosition(), this::dispatch);
+                }
+                dirtyPlayers.put(player, event.getNewPosition());
+                return;
+            }
+            handleTriggers(player, player.getInstance(), event.getNewPosition(), event.getNewPosition(), this::dispatch);
         }
     }
 
     public void entitySpawnEvent(EntitySpawnEvent event) {
         if (event.getEntity() instanceof Player player) {
-            final Pos spawnPos = player.getPosition();
+            if (evaluationMode == EvaluationMode.TICK_BATCHED) {
+                dirtyPlayers.put(player, player.getPosition());
+                return;
+            }
+            // The player either spawns inside or not inside
+            handleTriggers(player, event.getSpawnInstance(), player.getPosition(), player.getPosition(), this::dispatch);
+        }
+    }
+
+    /**
+     * Fires {@link TriggeredCallback.Type#EXITED} for every trigger the player is inside, once it leaves the instance or disconnects.
+     * @param event The {@link RemoveEntityFromInstanceEvent}.
+     */
+    public void removeEntityFromInstanceEvent(RemoveEntityFromInstanceEvent event) {
+        if (event.getEntity() instanceof Player player) {
+            exitAll(player);
+        }
+    }
+
+    public void playerDisconnectEvent(PlayerDisconnectEvent event) {
+        exitAll(event.getPlayer());
+    }
 
-            List<Vec> currentPoints = Trigger.getHitboxPoints(spawnPos, player);
+    /**
+     * Evaluate all players that moved since the last tick, used by {@link EvaluationMode#TICK_BATCHED}.
+     * Every player is evaluated once, no matter how many move events it sent, sweeping from its first to its last position of the tick.
+     * The narrowphase runs in parallel on the {@link TriggerManager#setEvaluationPool(ForkJoinPool) evaluation pool},
+     * the resulting callbacks are then dispatched on the calling thread, ordered by player entity id.
+     * Players stay dirty until they were evaluated, if the evaluation fails they are retried on the next tick.
+     */
+    private void evaluateDirtyPlayers() {
+        if (dirtyPlayers.isEmpty()) return;
 
-            Box queryBox = Box.create(spawnPos.blockX(), spawnPos.blockY(), spawnPos.blockZ(), spawnPos.blockX() + 1, spawnPos.blockY() + 1, spawnPos.blockZ() + 1);
+        List<Player> players = new ArrayList<>(dirtyPlayers.size());
+        Map<Player, Pos> startPositions = new HashMap<>();
+        for (Iterator<Map.Entry<Player, Pos>> iterator = dirtyPlayers.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Player, Pos> entry = iterator.next();
+            Player player = entry.getKey();
+            if (player.isOnline() && player.getInstance() != null) {
+                players.add(player);
+                startPositions.put(player, entry.getValue());
+            } else {
+                iterator.remove();
+            }
+        }
+        players.sort(Comparator.comparingInt(Player::getEntityId));
 
-            triggers.values(box -> box.intersectsOpen(queryBox)).forEach(trigger -> {
-                boolean isInside = trigger.contains(currentPoints);
+        @SuppressWarnings("unchecked")
+        final List<TriggeredCallback>[] results = new List[players.size()];
+        final Pos[] endPositions = new Pos[players.size()];
+        try {
+            evaluationPool.submit(() -> IntStream.range(0, players.size()).parallel().forEach(i -> {
+                Player player = players.get(i);
+                Pos end = player.getPosition();
+                List<TriggeredCallback> callbacks = new ArrayList<>(0);
+                handleTriggers(player, player.getInstance(), startPositions.get(player), end, callbacks::add);
+                endPositions[i] = end;
+                results[i] = callbacks;
+            })).join();
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to evaluate {} moved players, retrying on the next tick", players.size(), e);
+        }
 
-                // The player either spawns inside or not inside
-                if (isInside) {
-                    trigger.getTriggeredCallback().accept(new TriggeredCallback(player, trigger, TriggeredCallback.Type.TICK));
-                    trigger.getTriggeredCallback().accept(new TriggeredCallback(player, trigger, TriggeredCallback.Type.ENTERED));
-                }
-            });
+        for (int i = 0; i < results.length; i++) {
+            // Not evaluated, the player stays dirty
+            if (results[i] == null) continue;
+            Player player = players.get(i);
+            Pos start = startPositions.get(player), end = endPositions[i];
+            // A teleport replaced the start in the meantime, a later move continues where the evaluation ended
+            dirtyPlayers.computeIfPresent(player, (p, pos) -> pos != start ? pos : p.getPosition().samePoint(end) ? null : end);
+            results[i].forEach(this::dispatch);
+            // The player might have disconnected while it was evaluated
+            if (!player.isOnline()) forget(player);
+        }
+    }
+
+    /**
+     * Fire {@link TriggeredCallback.Type#TICK} for every player inside a trigger, at the {@link Trigger#getTickInterval() interval} of the trigger.
+     * Only triggers with occupants are visited, players standing still cost no collision checks.
+     */
+    private void tickOccupants() {
+        final long tick = ++tickCounter;
+        for (Iterator<Trigger> iterator = tickingTriggers.iterator(); iterator.hasNext(); ) {
+            Trigger trigger = iterator.next();
+            Set<Player> occupants = trigger.getOccupants();
+            if (occupants.isEmpty()) {
+                iterator.remove();
+                // A player might have entered in the meantime
+                if (!occupants.isEmpty()) tickingTriggers.add(trigger);
+                continue;
+            }
+            if (!trigger.isSubscribed(TriggeredCallback.Type.TICK) || tick % trigger.getTickInterval() != 0) continue;
+            for (Player player : occupants) {
+                dispatch(new TriggeredCallback(player, trigger, TriggeredCallback.Type.TICK));
+            }
+        }
+    }
+
+    /**
+     * The per tick work of the manager, see {@link TriggerManager#registerEvents(EventNode)}.
+     */
+    private void tick() {
+        evaluateDirtyPlayers();
+        tickOccupants();
+    }
+
+    /**
+     * Only the current position is tested, whether the player was inside before is taken from {@link TriggerManager#occupancy}.
+     * Triggers the player was inside that the query did not visit are exited without a narrowphase test.
+     * Triggers the player was neither inside before nor is now, but crossed on the way from the previous position, get an ENTERED and an EXITED callback.
+     * The query box covers the whole move, so it doubles as the swept bounding box that filters the candidates of the exact sweep.
+     * Package-private for the benchmarks.
+     */
+    void handleTriggers(Player player, Instance instance, Pos previousPos, Pos currentPos, Consumer<TriggeredCallback> sink) {
+        Query query = queries.get();
+        // Callbacks that run right away may move the player again, nested calls get their own visitor
+        if (query.running) query = new Query();
+        if (!TriggerGlobals.collectMetrics) {
+            query.run(player, instance, previousPos, currentPos, sink, false);
+            return;
         }
+        final long start = System.nanoTime();
+        query.run(player, instance, previousPos, currentPos, sink, true);
+        final long sinkNanos = query.sinkNanos;
+        handleNanos.record(System.nanoTime() - start - sinkNanos);
+        candidatesPerQuery.record(query.candidates);
+        if (query.callbacks > 0) dispatchNanos.record(sinkNanos);
     }
 
-    private void handleTriggers(Player player, List<Vec> previousPoints, List<Vec> currentPoints, Box queryBox) {
-        triggers.values(box -> box.intersectsOpen(queryBox)).forEach(trigger -> {
-            boolean wasInside = trigger.contains(previousPoints);
-            boolean isInside = trigger.contains(currentPoints);
+    /**
+     * The work of {@link TriggerManager#handleTriggers(Player, Instance, Pos, Pos, Consumer)}, reused by every call on the same thread,
+     * so the broadphase visitor does not allocate per player move.
+     */
+    private final class Query implements Consumer<Trigger> {
+        private boolean running;
+        private Player player;
+        private BoundingBox hitbox;
+        private Pos previousPos, currentPos;
+        private Set<Trigger> inside;
+        // Triggers of the query the player was or is inside, the index decides what is a candidate, not the current bounding box
+        private final Set<Trigger> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private Consumer<TriggeredCallback> sink;
+        private boolean swept, metrics;
+        // Only counted if metrics are collected
+        private int candidates, callbacks;
+        private long sinkNanos;
+
+        void run(Player player, Instance instance, Pos previousPos, Pos currentPos, Consumer<TriggeredCallback> sink, boolean metrics) {
+            this.running = true;
+            this.player = player;
+            this.hitbox = player.getBoundingBox();
+            this.previousPos = previousPos;
+            this.currentPos = currentPos;
+            this.sink = sink;
+            this.metrics = metrics;
+            this.swept = !previousPos.samePoint(currentPos);
+            this.inside = occupancy.computeIfAbsent(player, p -> ConcurrentHashMap.newKeySet());
+            this.candidates = 0;
+            this.callbacks = 0;
+            this.sinkNanos = 0;
+            try {
+                final Box queryBox = queryBox(previousPos, currentPos);
+                getTriggers(instance).query(queryBox, this);
 
-            if (isInside) {
-                trigger.getTriggeredCallback().accept(new TriggeredCallback(player, trigger, TriggeredCallback.Type.TICK));
+                if (inside.isEmpty()) return;
+                for (Iterator<Trigger> iterator = inside.iterator(); iterator.hasNext(); ) {
+                    Trigger trigger = iterator.next();
+                    if (visited.contains(trigger)) continue;
+                    iterator.remove();
+                    trigger.removeOccupant(player);
+                    emit(trigger, TriggeredCallback.Type.EXITED);
+                }
+            } finally {
+                // Don't keep the player or the triggers alive through the thread local
+                visited.clear();
+                this.player = null;
+                this.inside = null;
+                this.sink = null;
+                this.running = false;
             }
+        }
+
+        @Override
+        public void accept(Trigger trigger) {
+            boolean wasInside = inside.contains(trigger);
+            boolean isInside = trigger.contains(hitbox, currentPos.x(), currentPos.y(), currentPos.z());
+            if (metrics) {
+                candidates++;
+                trigger.getMetrics().candidate();
+                trigger.getMetrics().narrowphaseTest();
+            }
+            if (wasInside || isInside) visited.add(trigger);
+
             if (!wasInside && isInside) {
-                trigger.getTriggeredCallback().accept(new TriggeredCallback(player, trigger, TriggeredCallback.Type.ENTERED));
+                inside.add(trigger);
+                trigger.addOccupant(player);
+                tickingTriggers.add(trigger);
+                emit(trigger, TriggeredCallback.Type.ENTERED);
             } else if (wasInside && !isInside) {
-                trigger.getTriggeredCallback().accept(new TriggeredCallback(player, trigger, TriggeredCallback.Type.EXITED));
+                inside.remove(trigger);
+                trigger.removeOccupant(player);
+                emit(trigger, TriggeredCallback.Type.EXITED);
+            } else if (swept && !isInside) {
+                if (metrics) trigger.getMetrics().narrowphaseTest();
+                if (trigger.intersectsSwept(hitbox, previousPos.x(), previousPos.y(), previousPos.z(), currentPos.x(), currentPos.y(), currentPos.z())) {
+                    emit(trigger, TriggeredCallback.Type.ENTERED);
+                    emit(trigger, TriggeredCallback.Type.EXITED);
+                }
+            }
+        }
+
+        /**
+         * Emit a callback, timing the sink separately so callbacks that run right away are not counted as collision handling.
+         */
+        private void emit(Trigger trigger, TriggeredCallback.Type type) {
+            if (!metrics) {
+                TriggerManager.emit(sink, player, trigger, type);
+                return;
             }
-        });
+            final long start = System.nanoTime();
+            TriggerManager.emit(sink, player, trigger, type);
+            sinkNanos += System.nanoTime() - start;
+            callbacks++;
+        }
+    }
+
+    /**
+     * Exit every trigger a player is inside and drop its {@link TriggerManager#occupancy} state.
+     * @param player The player.
+     */
+    private void exitAll(Player player) {
+        dirtyPlayers.remove(player);
+        Set<Trigger> inside = occupancy.remove(player);
+        if (inside == null) return;
+        for (Trigger trigger : inside) {
+            trigger.removeOccupant(player);
+            emit(this::dispatch, player, trigger, TriggeredCallback.Type.EXITED);
+        }
+    }
+
+    /**
+     * Drop the {@link TriggerManager#occupancy} state of a player without any callbacks.
+     * @param player The player.
+     */
+    private void forget(Player player) {
+        Set<Trigger> inside = occupancy.remove(player);
+        if (inside == null) return;
+        for (Trigger trigger : inside) {
+            trigger.removeOccupant(player);
+        }
+    }
+
+    /**
+     * Create and pass a callback to the sink, unless the trigger is not {@link Trigger#isSubscribed(TriggeredCallback.Type) subscribed} to its type.
+     * @param sink The sink of the callback.
+     * @param player The player that triggered the trigger.
+     * @param trigger The trigger.
+     * @param type The {@link TriggeredCallback.Type} of the callback.
+     */
+    private static void emit(Consumer<TriggeredCallback> sink, Player player, Trigger trigger, TriggeredCallback.Type type) {
+        if (TriggerGlobals.collectMetrics) {
+            if (type == TriggeredCallback.Type.ENTERED) trigger.getMetrics().entered();
+            else if (type == TriggeredCallback.Type.EXITED) trigger.getMetrics().exited();
+        }
+        if (trigger.isSubscribed(type)) {
+            sink.accept(new TriggeredCallback(player, trigger, type));
+        }
+    }
+
+    /**
+     * Pass a callback to the {@link CallbackDispatcher}, or run it right away if the trigger {@link Trigger#isTickThreadCallbacks() requires the tick thread}.
+     * @param callback The callback to dispatch.
+     */
+    private void dispatch(TriggeredCallback callback) {
+        if (callback.trigger().isTickThreadCallbacks()) {
+            CallbackDispatcher.SYNC.dispatch(callback);
+        } else {
+            callbackDispatcher.dispatch(callback);
+        }
+    }
+
+    /**
+     * The broadphase query box around the way between two player positions, large enough for the player hitbox.
+     * @param from The previous player position.
+     * @param to The current player position.
+     * @return The query {@link Box}.
+     */
+    private static Box queryBox(Pos from, Pos to) {
+        return Box.create(
+                (int) Math.floor(Math.min(from.x(), to.x()) - 1.5),
+                (int) Math.floor(Math.min(from.y(), to.y()) - 1.5),
+                (int) Math.floor(Math.min(from.z(), to.z()) - 1.5),
+                (int) Math.ceil(Math.max(from.x(), to.x()) + 1.5),
+                (int) Math.ceil(Math.max(from.y(), to.y()) + 3),
+                (int) Math.ceil(Math.max(from.z(), to.z()) + 1.5)
+        );
     }
 
     /**
-     * Remove a trigger from {@link TriggerManager#triggers}.
+     * Get the triggers a player is currently inside.
+     * @param player The player.
+     * @return An unmodifiable view of the triggers the player is inside, empty if none.
+     */
+    public Set<Trigger> getTriggersInside(Player player) {
+        Set<Trigger> inside = occupancy.get(player);
+        return inside == null ? Set.of() : Collections.unmodifiableSet(inside);
+    }
+
+    /**
+     * Remove a trigger from the spatial index of its {@link Instance}.
+     * Use a {@link TriggerManager#batch() batch} for removing many triggers.
+     * Players inside the trigger forget about it without an {@link TriggeredCallback.Type#EXITED} callback.
      * @param trigger The trigger to remove.
      * @return True if the trigger was removed, false if it does not exist.
      */
     public boolean remove(Trigger trigger) {
-        Box key = trigger.getBoundingBox();
-        triggers = triggers.remove(key, trigger);
-        boolean existed = triggers.containsKey(key);
-        if (existed) totalTriangles -= trigger.getTriangles().size();
+        Instance instance = trigger.getInstance();
+        if (instance == null) return false;
+        SpatialIndex tree = triggers.get(instance);
+        boolean existed = tree != null && tree.contains(trigger);
+        batch().remove(trigger).commit();
         return existed;
     }
+
     /**
-     * Add an existing trigger to {@link TriggerManager#triggers}.
+     * Add an existing trigger to the spatial index of its {@link Instance}, see {@link Trigger#setInstance(Instance)}.
+     * Use {@link TriggerManager#addAll(Instance, Collection)} or a {@link TriggerManager#batch() batch} for adding many triggers.
      * @param trigger The trigger to add.
      */
     public void add(Trigger trigger) {
-        triggers = triggers.put(trigger.getBoundingBox(), trigger);
+        batch().add(trigger).commit();
+    }
+
+    /**
+     * Bind an existing trigger to an {@link Instance} and add it to the spatial index of that instance.
+     * @param instance The {@link Instance} the trigger is bound to.
+     * @param trigger The trigger to add.
+     */
+    public void add(Instance instance, Trigger trigger) {
+        trigger.setInstance(instance);
+        add(trigger);
+    }
+
+    /**
+     * Bind many triggers to an {@link Instance} and bulk load them into the spatial index of that instance.
+     * The index is packed once and published once, which is a lot faster than adding the triggers one by one.
+     * @param instance The {@link Instance} the triggers are bound to.
+     * @param triggers The triggers to add.
+     */
+    public void addAll(Instance instance, Collection<Trigger> triggers) {
+        Batch batch = batch();
+        for (Trigger trigger : triggers) {
+            trigger.setInstance(instance);
+            batch.add(trigger);
+        }
+        batch.commit();
+    }
+
+    /**
+     * Move a trigger and update its bounding box in the spatial index of its {@link Instance}, see {@link Trigger#setPosition(Pos)}.
+     * Use a {@link TriggerManager#batch() batch} for moving many triggers.
+     * @param trigger The trigger to move.
+     * @param position The new base position of the hull.
+     */
+    public void move(Trigger trigger, Pos position) {
+        batch().move(trigger, position).commit();
+    }
+
+    /**
+     * Compute the hull of a trigger again and update its bounding box in the spatial index of its {@link Instance}, see {@link Trigger#recompute()}.
+     * @param trigger The trigger to recompute.
+     */
+    public void recompute(Trigger trigger) {
+        batch().recompute(trigger).commit();
+    }
+
+    /**
+     * Load every HOCON trigger definition ({@code .conf}) in a directory and its subdirectories into an {@link Instance}.
+     * Files are parsed and their hulls computed in parallel on the {@link TriggerManager#setEvaluationPool(ForkJoinPool) evaluation pool},
+     * all scripts are compiled in a single compiler run, and the triggers are bulk loaded into the index at once.
+     * A broken file does not stop the others from loading, its error is part of the {@link LoadReport}.
+     * @param instance The {@link Instance} the triggers are bound to.
+     * @param directory The directory to load.
+     * @return The {@link LoadReport} with the result and timings of every file.
+     * @throws IOException If the directory could not be listed.
+     */
+    public LoadReport loadAll(Instance instance, Path directory) throws IOException {
+        final long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).filter(file -> file.toString().endsWith(".conf")).sorted().toList();
+        }
+
+        List<ParsedFile> parsed = evaluationPool.submit(() -> files.parallelStream().map(TriggerManager::parseFile).toList()).join();
+
+        // One compiler run for every script of the directory
+        final long compileStart = System.nanoTime();
+        List<RuntimeCompiler.Source> sources = new ArrayList<>();
+        for (ParsedFile file : parsed) {
+            if (file.trigger() != null && file.definition().getCode() != null && (file.definition().getActions() == null || file.definition().getActions().isEmpty())) {
+                String imports = file.definition().getImports() == null ? "" : file.definition().getImports();
+                sources.add(new RuntimeCompiler.Source(imports, file.definition().getCode()));
+            }
+        }
+        Iterator<RuntimeCompiler.Result> compiled = RuntimeCompiler.compileAll(sources).iterator();
+
+        List<LoadedFile> results = new ArrayList<>(parsed.size());
+        List<Trigger> loaded = new ArrayList<>();
+        for (ParsedFile file : parsed) {
+            if (file.trigger() == null) {
+                results.add(new LoadedFile(file.path(), null, file.error(), file.parseMillis(), file.hullMillis()));
+                continue;
+            }
+            TriggerDefinition definition = file.definition();
+            String error = null;
+            try {
+                if (definition.getActions() != null && !definition.getActions().isEmpty()) {
+                    file.trigger().setTriggeredCallback(DynamicConsumerWrapper.ofActions(definition.getActions()));
+                } else if (definition.getCode() != null) {
+                    RuntimeCompiler.Result result = compiled.next();
+                    if (result.isSuccess()) {
+                        file.trigger().setTriggeredCallback(result.wrap());
+                    } else {
+                        error = String.join("\n", result.diagnostics());
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+            if (error == null) loaded.add(file.trigger());
+            results.add(new LoadedFile(file.path(), error == null ? file.trigger() : null, error, file.parseMillis(), file.hullMillis()));
+        }
+        final double compileMillis = (System.nanoTime() - compileStart) / 1000000.0;
+
+        final long indexStart = System.nanoTime();
+        addAll(instance, loaded);
+        final double indexMillis = (System.nanoTime() - indexStart) / 1000000.0;
+
+        LoadReport report = new LoadReport(List.copyOf(results), compileMillis, indexMillis, (System.nanoTime() - start) / 1000000.0);
+        if (debug) {
+            DecimalFormat df = new DecimalFormat("###.###");
+            LOGGER.info("Loaded {} of {} trigger files from {} in {}ms", loaded.size(), results.size(), directory, df.format(report.totalMillis()));
+        }
+        report.failures().forEach(failure -> LOGGER.error("Failed to load trigger {}: {}", failure.path(), failure.error()));
+        return report;
+    }
+
+    /**
+     * Internally used by {@link TriggerManager#loadAll(Instance, Path)} to parse a definition and compute its hull, without its callback.
+     * @param path The definition file.
+     * @return The parsed file, or its error.
+     */
+    private static ParsedFile parseFile(Path path) {
+        final long start = System.nanoTime();
+        TriggerDefinition definition;
+        try {
+            definition = load(path);
+        } catch (Exception e) {
+            return new ParsedFile(path, null, null, String.valueOf(e), (System.nanoTime() - start) / 1000000.0, 0);
+        }
+        final double parseMillis = (System.nanoTime() - start) / 1000000.0;
+
+        final long hullStart = System.nanoTime();
+        try {
+            Trigger trigger = fromDefinition(path, definition, null);
+            return new ParsedFile(path, definition, trigger, null, parseMillis, (System.nanoTime() - hullStart) / 1000000.0);
+        } catch (RuntimeException e) {
+            return new ParsedFile(path, definition, null, String.valueOf(e), parseMillis, (System.nanoTime() - hullStart) / 1000000.0);
+        }
+    }
+
+    /**
+     * Internally used to create the trigger of a definition file, without its callback.
+     * @param path The definition file, its name is used if the definition has none.
+     * @param definition The definition.
+     * @param geometry Previously computed {@link Trigger.Geometry} to reuse if the anchors are unchanged, may be null.
+     * @return The new trigger.
+     */
+    static Trigger fromDefinition(Path path, TriggerDefinition definition, Trigger.Geometry geometry) {
+        if (definition.getAnchors() == null) throw new IllegalArgumentException("Missing anchors");
+        Component name = Component.text(definitionName(path, definition));
+        Vec position = definition.getPos() == null ? Vec.ZERO : definition.getPos();
+        Trigger trigger = new Trigger(prepareAnchors(definition.getAnchors(), name), position, UUID.randomUUID(), name, parseColor(definition.getDebugColor()), null, geometry);
+        if (definition.getEvents() != null) trigger.setSubscriptions(definition.getEvents());
+        trigger.setTickInterval(definition.getTickInterval());
+        return trigger;
+    }
+
+    /**
+     * Internally used to get the name of a definition, which defaults to its file name without the extension.
+     * @param path The definition file.
+     * @param definition The definition.
+     * @return The name.
+     */
+    static String definitionName(Path path, TriggerDefinition definition) {
+        if (definition.getName() != null) return definition.getName();
+        String fileName = path.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return extension < 0 ? fileName : fileName.substring(0, extension);
+    }
+
+    /**
+     * Internally used to parse the debug color of a definition, either a named color like {@code red} or a hex color like {@code #ff0000}.
+     * @param color The color string, may be null.
+     * @return The parsed color, red if there is none or it could not be parsed.
+     */
+    static TextColor parseColor(String color) {
+        if (color == null) return NamedTextColor.RED;
+        TextColor parsed = color.startsWith("#") ? TextColor.fromHexString(color) : NamedTextColor.NAMES.value(color.toLowerCase(Locale.ROOT));
+        return parsed == null ? NamedTextColor.RED : parsed;
+    }
+
+    private record ParsedFile(Path path, TriggerDefinition definition, Trigger trigger, String error, double parseMillis, double hullMillis) {}
+
+    /**
+     * The result of loading a single file with {@link TriggerManager#loadAll(Instance, Path)}.
+     * @param path The definition file.
+     * @param trigger The loaded trigger, null if the file failed to load.
+     * @param error The error of the file, null if it loaded.
+     * @param parseMillis How long parsing the file took in milliseconds.
+     * @param hullMillis How long computing the hull took in milliseconds.
+     */
+    public record LoadedFile(Path path, Trigger trigger, String error, double parseMillis, double hullMillis) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * The result of {@link TriggerManager#loadAll(Instance, Path)}.
+     * @param files The result of every file, in path order.
+     * @param compileMillis How long compiling all scripts took in milliseconds.
+     * @param indexMillis How long the bulk load into the index took in milliseconds.
+     * @param totalMillis How long the whole load took in milliseconds.
+     */
+    public record LoadReport(List<LoadedFile> files, double compileMillis, double indexMillis, double totalMillis) {
+
+        /**
+         * @return The successfully loaded triggers.
+         */
+        public List<Trigger> triggers() {
+            return files.stream().filter(LoadedFile::isSuccess).map(LoadedFile::trigger).toList();
+        }
+
+        /**
+         * @return The files that failed to load.
+         */
+        public List<LoadedFile> failures() {
+            return files.stream().filter(file -> !file.isSuccess()).toList();
+        }
+    }
+
+    /**
+     * Start a new {@link Batch} of additions and removals that is published at once.
+     * @return A new, empty {@link Batch}.
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * A batch of additions and removals across any instances.
+     * Nothing is visible to collision checks until {@link Batch#commit()} is called,
+     * which then applies all changes and publishes every affected spatial index exactly once.
+     * Not thread safe, but committing is.
+     */
+    public final class Batch {
+        private final Map<Instance, List<Operation>> operations = new HashMap<>();
+        private final Set<Trigger> exiting = Collections.newSetFromMap(new IdentityHashMap<>()); // Removed triggers whose occupants are exited
+
+        private Batch() {}
+
+        /**
+         * Add a trigger to the spatial index of its {@link Instance}.
+         * @param trigger The trigger to add, has to be bound to an {@link Instance}.
+         * @return This batch.
+         */
+        public Batch add(Trigger trigger) {
+            Instance instance = trigger.getInstance();
+            if (instance == null) {
+                throw new IllegalArgumentException("Trigger " + trigger.getUuid() + " is not bound to an instance");
+            }
+            operations.computeIfAbsent(instance, i -> new ArrayList<>()).add(new Operation(trigger, true, null));
+            return this;
+        }
+
+        /**
+         * Remove a trigger from the spatial index of its {@link Instance}, the players inside it are dropped without a callback.
+         * @param trigger The trigger to remove.
+         * @return This batch.
+         */
+        public Batch remove(Trigger trigger) {
+            return remove(trigger, false);
+        }
+
+        /**
+         * Remove a trigger from the spatial index of its {@link Instance}.
+         * @param trigger The trigger to remove.
+         * @param exit true to fire {@link TriggeredCallback.Type#EXITED} for the players inside the trigger on the next tick and evaluate them again at their position,
+         *             false to drop them without a callback.
+         * @return This batch.
+         */
+        public Batch remove(Trigger trigger, boolean exit) {
+            Instance instance = trigger.getInstance();
+            if (instance != null) {
+                operations.computeIfAbsent(instance, i -> new ArrayList<>()).add(new Operation(trigger, false, null));
+                if (exit) exiting.add(trigger);
+            }
+            return this;
+        }
+
+        /**
+         * Replace a trigger with another one, for example a new version loaded from its definition.
+         * The players inside the previous trigger are {@link Batch#remove(Trigger, boolean) exited} on the next tick
+         * and evaluated again at their position, so they enter the replacement if they are inside it.
+         * @param previous The trigger to remove.
+         * @param replacement The trigger to add, has to be bound to an {@link Instance}.
+         * @return This batch.
+         */
+        public Batch replace(Trigger previous, Trigger replacement) {
+            remove(previous, true);
+            return add(replacement);
+        }
+
+        /**
+         * Move a trigger, see {@link Trigger#setPosition(Pos)}.
+         * The trigger is moved on commit and, if it is indexed, inserted again with its new bounding box.
+         * @param trigger The trigger to move.
+         * @param position The new base position of the hull.
+         * @return This batch.
+         */
+        public Batch move(Trigger trigger, Pos position) {
+            return update(trigger, () -> trigger.setPosition(position));
+        }
+
+        /**
+         * Compute the hull of a trigger again, see {@link Trigger#recompute()}.
+         * The trigger is recomputed on commit and, if it is indexed, inserted again with its new bounding box.
+         * @param trigger The trigger to recompute.
+         * @return This batch.
+         */
+        public Batch recompute(Trigger trigger) {
+            return update(trigger, trigger::recompute);
+        }
+
+        private Batch update(Trigger trigger, Runnable mutation) {
+            Instance instance = trigger.getInstance();
+            if (instance == null) {
+                mutation.run();
+            } else {
+                operations.computeIfAbsent(instance, i -> new ArrayList<>()).add(new Operation(trigger, true, mutation));
+            }
+            return this;
+        }
+
+        /**
+         * Apply all changes and publish the new spatial indexes.
+         * Moves and recomputes run first, outside of the index updates. If one of them throws, only the triggers changed so far are inserted again,
+         * the rest of the batch is dropped and the exception is rethrown.
+         */
+        public void commit() {
+            Map<Trigger, Integer> triangles = new IdentityHashMap<>(); // Triangle count before the batch
+            Set<Trigger> mutated = Collections.newSetFromMap(new IdentityHashMap<>());
+            RuntimeException failure = null;
+            mutations:
+            for (List<Operation> instanceOperations : operations.values()) {
+                for (Operation operation : instanceOperations) {
+                    Trigger trigger = operation.trigger();
+                    triangles.putIfAbsent(trigger, trigger.getTriangles().size());
+                    if (operation.mutation() == null) continue;
+                    try {
+                        operation.mutation().run();
+                    } catch (RuntimeException e) {
+                        failure = e;
+                        break mutations;
+                    }
+                    mutated.add(trigger);
+                }
+            }
+            if (failure != null) {
+                // The index has to follow the triggers that already changed, nothing else of the batch is applied
+                operations.values().forEach(instanceOperations -> instanceOperations.removeIf(operation -> operation.mutation() == null || !mutated.contains(operation.trigger())));
+                exiting.clear();
+            }
+
+            List<Trigger> removed = new ArrayList<>();
+            operations.forEach((instance, instanceOperations) -> triggers.compute(instance, (i, current) -> {
+                SpatialIndex base = current == null ? indexFactory.get() : current;
+                SpatialIndex.Edit edit = base.edit();
+                Map<Trigger, Boolean> indexed = new IdentityHashMap<>(); // Membership after the operations so far
+                for (Operation operation : instanceOperations) {
+                    Trigger trigger = operation.trigger();
+                    if (operation.mutation() != null) {
+                        // Insert again, the index removes the bounding box it stored and adds the current one
+                        if (indexed.computeIfAbsent(trigger, base::contains)) edit.remove(trigger).add(trigger);
+                    } else if (operation.add()) {
+                        edit.add(trigger);
+                        indexed.put(trigger, true);
+                    } else {
+                        edit.remove(trigger);
+                        indexed.put(trigger, false);
+                    }
+                }
+                SpatialIndex tree = edit.apply();
+                if (tree != base) {
+                    int delta = 0;
+                    for (Operation operation : instanceOperations) {
+                        Trigger trigger = operation.trigger();
+                        Integer before = triangles.remove(trigger);
+                        if (before == null) continue; // Counted already
+                        boolean wasIndexed = base.contains(trigger), isIndexed = tree.contains(trigger);
+                        delta += (isIndexed ? trigger.getTriangles().size() : 0) - (wasIndexed ? before : 0);
+                        if (wasIndexed && !isIndexed) removed.add(trigger);
+                    }
+                    totalTriangles.addAndGet(delta);
+                }
+                return tree.isEmpty() ? null : tree;
+            }));
+
+            // Occupants and callbacks of removed triggers are only dropped once the new indexes are published
+            List<Map.Entry<Trigger, List<Player>>> exited = new ArrayList<>();
+            for (Trigger trigger : removed) {
+                if (exiting.contains(trigger) && !trigger.getOccupants().isEmpty()) {
+                    exited.add(Map.entry(trigger, List.copyOf(trigger.getOccupants())));
+                }
+                occupancy.values().forEach(inside -> inside.remove(trigger));
+                trigger.clearOccupants();
+                releaseCallback(trigger);
+            }
+            operations.clear();
+            exiting.clear();
+            if (!exited.isEmpty()) {
+                MinecraftServer.getSchedulerManager().scheduleNextTick(() -> exitRemoved(exited));
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Fire {@link TriggeredCallback.Type#EXITED} for the former occupants of {@link Batch#remove(Trigger, boolean) exited} triggers
+     * and evaluate them again, so they enter the replacements they are inside of.
+     * @param exited The removed triggers and the players that were inside them.
+     */
+    private void exitRemoved(List<Map.Entry<Trigger, List<Player>>> exited) {
+        Set<Player> players = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Trigger, List<Player>> entry : exited) {
+            for (Player player : entry.getValue()) {
+                emit(this::dispatch, player, entry.getKey(), TriggeredCallback.Type.EXITED);
+                players.add(player);
+            }
+        }
+        for (Player player : players) {
+            Instance instance = player.getInstance();
+            if (instance == null) continue;
+            if (evaluationMode == EvaluationMode.TICK_BATCHED) {
+                dirtyPlayers.putIfAbsent(player, player.getPosition());
+            } else {
+                handleTriggers(player, instance, player.getPosition(), player.getPosition(), this::dispatch);
+            }
+        }
+    }
+
+    /**
+     * A single change of a {@link Batch}. Operations with a mutation re-insert an indexed trigger after running it.
+     */
+    private record Operation(Trigger trigger, boolean add, Runnable mutation) {}
+
+    private static int countTriangles(SpatialIndex tree) {
+        int[] count = {0};
+        tree.forEach(trigger -> count[0] += trigger.getTriangles().size());
+        return count[0];
     }
 
     /**
@@ -218,19 +992,61 @@ public class TriggerManager {
 //    }
 
     /**
-     * Iterate over all registered triggers.
+     * Iterate over all registered triggers of every instance.
      * @param trigger The consumer.
      */
     public void forEach(Consumer<Trigger> trigger) {
-        triggers.values().forEach(trigger);
+        triggers.values().forEach(tree -> tree.forEach(trigger));
     }
 
     /**
      * Get an unmodifiable copy of the list containing all triggers of this manager.
      * @return An unmodifiable copy of the list containing all triggers of this manager.
      */
-    public Selection<Trigger> getTriggers() {
-        return triggers.values();
+    public List<Trigger> getTriggers() {
+        List<Trigger> all = new ArrayList<>();
+        forEach(all::add);
+        return List.copyOf(all);
+    }
+
+    /**
+     * Get the spatial index of the triggers bound to an {@link Instance}.
+     * @param instance The {@link Instance}.
+     * @return The {@link SpatialIndex} of the instance, empty if the instance has no triggers.
+     */
+    public SpatialIndex getTriggers(Instance instance) {
+        SpatialIndex tree = instance == null ? null : triggers.get(instance);
+        return tree == null ? indexFactory.get() : tree;
+    }
+
+    /**
+     * Drop the spatial index of an {@link Instance} together with all of its triggers.
+     * Called automatically once the instance is unregistered, if the events are {@link TriggerManager#registerEvents(EventNode) registered}.
+     * @param instance The {@link Instance} to drop.
+     */
+    public void removeInstance(Instance instance) {
+        SpatialIndex tree = triggers.remove(instance);
+        if (tree != null) {
+            totalTriangles.addAndGet(-countTriangles(tree));
+            occupancy.values().forEach(inside -> inside.removeIf(trigger -> trigger.getInstance() == instance));
+            tree.forEach(trigger -> {
+                trigger.clearOccupants();
+                releaseCallback(trigger);
+            });
+        }
+    }
+
+    /**
+     * Release the script of a removed trigger, so its generated class can be unloaded.
+     * @param trigger The removed trigger.
+     */
+    private static void releaseCallback(Trigger trigger) {
+        DynamicConsumerWrapper callback = trigger.getTriggeredCallback();
+        if (callback != null) callback.release();
+    }
+
+    public void instanceUnregisterEvent(InstanceUnregisterEvent event) {
+        removeInstance(event.getInstance());
     }
 
     /**
@@ -238,7 +1054,64 @@ public class TriggerManager {
      * @return Combined total triangle count of all registered triggers.
      */
     public int getTotalTriangles() {
-        return totalTriangles;
+        return totalTriangles.get();
+    }
+
+    /**
+     * Get how collision is evaluated.
+     * @return The current {@link EvaluationMode}.
+     */
+    public EvaluationMode getEvaluationMode() {
+        return evaluationMode;
+    }
+
+    /**
+     * Set how collision is evaluated, can be changed at runtime.
+     * @param evaluationMode The new {@link EvaluationMode}.
+     */
+    public void setEvaluationMode(EvaluationMode evaluationMode) {
+        this.evaluationMode = evaluationMode;
+    }
+
+    /**
+     * Set the {@link ForkJoinPool} that evaluates moved players in {@link EvaluationMode#TICK_BATCHED}.
+     * Defaults to the {@link ForkJoinPool#commonPool() common pool}.
+     * @param evaluationPool The new evaluation pool.
+     */
+    public void setEvaluationPool(ForkJoinPool evaluationPool) {
+        this.evaluationPool = evaluationPool;
+    }
+
+    /**
+     * Get the {@link CallbackDispatcher} that decides where trigger callbacks run.
+     * @return The current {@link CallbackDispatcher}.
+     */
+    public CallbackDispatcher getCallbackDispatcher() {
+        return callbackDispatcher;
+    }
+
+    /**
+     * Set the {@link CallbackDispatcher} that decides where trigger callbacks run, e.g. {@link CallbackDispatcher#virtualThreads()}.
+     * Defaults to {@link CallbackDispatcher#SYNC}.
+     * @param callbackDispatcher The new {@link CallbackDispatcher}.
+     */
+    public void setCallbackDispatcher(CallbackDispatcher callbackDispatcher) {
+        this.callbackDispatcher = callbackDispatcher;
+    }
+
+    /**
+     * Describes when and where collision checks run.
+     */
+    public enum EvaluationMode {
+        /**
+         * Every move event is evaluated right away inside the event listener.
+         */
+        INLINE,
+        /**
+         * Move events only mark the player as moved. Once per tick, all moved players are evaluated in parallel
+         * and the callbacks are dispatched on the scheduler thread in a deterministic order.
+         */
+        TICK_BATCHED
     }
 
     /**
@@ -249,10 +1122,104 @@ public class TriggerManager {
         return debug;
     }
 
+    /**
+     * Get the runtime metrics of this manager and all of its triggers, collected while {@link TriggerGlobals#collectMetrics} is enabled.
+     * @return The {@link MetricsSnapshot}.
+     */
+    public MetricsSnapshot snapshotMetrics() {
+        Map<Trigger, TriggerMetrics.Snapshot> snapshots = new IdentityHashMap<>();
+        forEach(trigger -> snapshots.put(trigger, trigger.getMetrics().snapshot()));
+        return new MetricsSnapshot(handleNanos.snapshot(), candidatesPerQuery.snapshot(), dispatchNanos.snapshot(), Collections.unmodifiableMap(snapshots));
+    }
+
+    /**
+     * Set the metrics of this manager and all of its triggers back to 0.
+     */
+    public void resetMetrics() {
+        handleNanos.reset();
+        candidatesPerQuery.reset();
+        dispatchNanos.reset();
+        forEach(trigger -> trigger.getMetrics().reset());
+    }
+
+    /**
+     * The runtime metrics of a {@link TriggerManager} at one point in time, see {@link TriggerManager#snapshotMetrics()}.
+     * @param handleNanos How long the collision handling of one player move took, in nanoseconds. Excludes the time of callbacks that run right away.
+     * @param candidatesPerQuery How many broadphase candidates one player move had.
+     * @param dispatchNanos How long dispatching the callbacks of one player move took, in nanoseconds, for moves with callbacks.
+     *                      With {@link CallbackDispatcher#SYNC} this is the time of the callbacks themselves.
+     * @param triggers The counters of every trigger.
+     */
+    public record MetricsSnapshot(Histogram.Snapshot handleNanos, Histogram.Snapshot candidatesPerQuery, Histogram.Snapshot dispatchNanos,
+                                  Map<Trigger, TriggerMetrics.Snapshot> triggers) {
+
+        /**
+         * Get the triggers that were broadphase candidates most often, the usual suspects for oversized or overlapping triggers.
+         * @param limit The maximum amount of triggers.
+         * @return The triggers, most candidates first.
+         */
+        public List<Trigger> hottest(int limit) {
+            return top(Comparator.comparingLong(TriggerMetrics.Snapshot::candidates), limit);
+        }
+
+        /**
+         * Get the triggers that spent the most time in their callbacks.
+         * @param limit The maximum amount of triggers.
+         * @return The triggers, most callback time first.
+         */
+        public List<Trigger> slowest(int limit) {
+            return top(Comparator.comparingLong(TriggerMetrics.Snapshot::callbackNanos), limit);
+        }
+
+        private List<Trigger> top(Comparator<TriggerMetrics.Snapshot> comparator, int limit) {
+            return triggers.entrySet().stream()
+                    .sorted(Map.Entry.<Trigger, TriggerMetrics.Snapshot>comparingByValue(comparator).reversed())
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+    }
+
+    /**
+     * Get the renderer that draws the triggers near every player in debug mode, for example to change its particle budget.
+     * @return The {@link DebugRenderer}, only runs if this manager is in debug mode.
+     */
+    public DebugRenderer getDebugRenderer() {
+        return debugRenderer;
+    }
+
+    /**
+     * Register the event listeners and schedule the per tick task, which fires {@link TriggeredCallback.Type#TICK}
+     * and runs the evaluation of {@link EvaluationMode#TICK_BATCHED}.
+     * The task is only scheduled once, no matter how many {@link EventNode EventNodes} the listeners are registered with.
+     * @param handler The {@link EventNode} to register the listeners with.
+     */
     public void registerEvents(EventNode<Event> handler) {
+        synchronized (this) {
+            if (tickTask == null) {
+                tickTask = MinecraftServer.getSchedulerManager().buildTask(this::tick).repeat(TaskSchedule.nextTick()).schedule();
+            }
+        }
         handler.addListener(PlayerMoveEvent.class, this::playerMoveEvent)
                 .addListener(EntityTeleportEvent.class, this::entityTeleportEvent)
-                .addListener(EntitySpawnEvent.class, this::entitySpawnEvent);
+                .addListener(EntitySpawnEvent.class, this::entitySpawnEvent)
+                .addListener(RemoveEntityFromInstanceEvent.class, this::removeEntityFromInstanceEvent)
+                .addListener(PlayerDisconnectEvent.class, this::playerDisconnectEvent)
+                .addListener(InstanceUnregisterEvent.class, this::instanceUnregisterEvent);
+    }
+
+    /**
+     * Cancel the per tick task and the debug rendering of this manager. The event listeners stay registered with their
+     * {@link EventNode}, remove that node to stop the manager completely. {@link TriggerManager#registerEvents(EventNode)} schedules the task again.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (tickTask != null) {
+                tickTask.cancel();
+                tickTask = null;
+            }
+        }
+        if (debugTask != null) debugTask.cancel();
     }
 
     public static TriggerDefinition load(Path path) throws Exception {
@@ -0,0 +1,94 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters of one {@link Trigger}, only updated while {@link TriggerGlobals#collectMetrics} is enabled.
+ * Counters are striped, so parallel evaluation does not contend on them.
+ */
+public final class TriggerMetrics {
+
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder narrowphaseTests = new LongAdder();
+    private final LongAdder enters = new LongAdder();
+    private final LongAdder exits = new LongAdder();
+    private final LongAdder callbacks = new LongAdder();
+    private final LongAdder callbackNanos = new LongAdder();
+    private final LongAccumulator maxCallbackNanos = new LongAccumulator(Math::max, 0);
+
+    TriggerMetrics() {}
+
+    void candidate() {
+        candidates.increment();
+    }
+
+    void narrowphaseTest() {
+        narrowphaseTests.increment();
+    }
+
+    void entered() {
+        enters.increment();
+    }
+
+    void exited() {
+        exits.increment();
+    }
+
+    void callback(long nanos) {
+        callbacks.increment();
+        callbackNanos.add(nanos);
+        maxCallbackNanos.accumulate(nanos);
+    }
+
+    /**
+     * Get the current values of all counters. Counters that change while the snapshot is taken may be slightly off.
+     * @return The {@link Snapshot}.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(candidates.sum(), narrowphaseTests.sum(), enters.sum(), exits.sum(), callbacks.sum(), callbackNanos.sum(), maxCallbackNanos.get());
+    }
+
+    /**
+     * Set all counters back to 0.
+     */
+    public void reset() {
+        candidates.reset();
+        narrowphaseTests.reset();
+        enters.reset();
+        exits.reset();
+        callbacks.reset();
+        callbackNanos.reset();
+        maxCallbackNanos.reset();
+    }
+
+    /**
+     * The counters of a trigger at one point in time.
+     * @param candidates How often the trigger was a broadphase candidate of a player.
+     * @param narrowphaseTests How many exact collision checks ran against the hull.
+     * @param enters How often a player entered the trigger, including players that crossed it within one move.
+     * @param exits How often a player exited the trigger, including players that crossed it within one move.
+     * @param callbacks How many callbacks ran.
+     * @param callbackNanos The total time spent in callbacks.
+     * @param maxCallbackNanos The longest callback.
+     */
+    public record Snapshot(long candidates, long narrowphaseTests, long enters, long exits, long callbacks, long callbackNanos, long maxCallbackNanos) {
+
+        /**
+         * @return The average time of a callback in nanoseconds, 0 if none ran.
+         */
+        public double meanCallbackNanos() {
+            return callbacks == 0 ? 0 : (double) callbackNanos / callbacks;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER;
+
+import cat.TRIGGER.config.TriggerDefinition;
+import cat.TRIGGER.dynamic.DynamicConsumerWrapper;
+import cat.TRIGGER.dynamic.RuntimeCompiler;
+import net.kyori.adventure.text.Component;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Instance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the triggers of an {@link Instance} in sync with a directory of HOCON definitions ({@code .conf}), see {@link TriggerManager#loadAll(Instance, Path)}.
+ * <p>
+ * Every file is hashed as a whole and its geometry (anchors, position) and code (imports, code, actions) separately.
+ * Unchanged files are skipped. A changed geometry replaces the trigger, its hull is only computed again if the anchors
+ * changed. Players inside a replaced trigger exit it and enter the replacement if they are inside of it, players inside
+ * a trigger whose file was deleted exit it.
+ * A changed script is compiled again and swapped into the existing trigger. Everything else, like the name, the color
+ * or the subscribed events, is updated in place. All replacements, additions and removals of one reload are applied
+ * with a single {@link TriggerManager.Batch}, so unchanged triggers keep their occupants, and the in place updates only
+ * once that batch is committed.
+ * <p>
+ * Files that fail to parse or compile keep their previous trigger until they are fixed.
+ */
+public final class TriggerReloader implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TriggerReloader.class);
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    // 64 bit FNV-1a
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TriggerManager manager;
+    private final Instance instance;
+    private final Path directory;
+    private final Map<Path, Entry> entries = new HashMap<>(); // Guarded by this
+    private volatile long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * Create a reloader without watching the directory, call {@link #reload()} to synchronize it.
+     * @param manager The {@link TriggerManager} to add the triggers to.
+     * @param instance The {@link Instance} the triggers belong to.
+     * @param directory The directory, searched recursively.
+     */
+    public TriggerReloader(TriggerManager manager, Instance instance, Path directory) {
+        this.manager = manager;
+        this.instance = instance;
+        this.directory = directory;
+    }
+
+    /**
+     * Load every definition of a directory and reload them whenever a file is created, modified or deleted.
+     * @param manager The {@link TriggerManager} to add the triggers to.
+     * @param instance The {@link Instance} the triggers belong to.
+     * @param directory The directory, searched recursively.
+     * @return The running reloader, {@link #close()} it to stop watching.
+     * @throws IOException If the directory could not be read or watched.
+     */
+    public static TriggerReloader start(TriggerManager manager, Instance instance, Path directory) throws IOException {
+        TriggerReloader reloader = new TriggerReloader(manager, instance, directory);
+        reloader.reload();
+        reloader.watch();
+        return reloader;
+    }
+
+    private synchronized void watch() throws IOException {
+        if (watchService != null) return;
+        watchService = directory.getFileSystem().newWatchService();
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+                path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            }
+        }
+        WatchService service = watchService;
+        thread = Thread.ofPlatform().daemon().name("TRIGGER-reloader").start(() -> run(service));
+    }
+
+    private void run(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                // Editors write files in several steps, wait until the directory is quiet
+                while (key != null) {
+                    handle(key);
+                    key = service.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                }
+                try {
+                    reload();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Failed to reload triggers from {}", directory, e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Closed
+        }
+    }
+
+    private void handle(WatchKey key) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == ENTRY_CREATE && key.watchable() instanceof Path parent && event.context() instanceof Path name) {
+                Path created = parent.resolve(name);
+                if (Files.isDirectory(created)) {
+                    try {
+                        created.register(key.watchService(), ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                    } catch (IOException e) {
+                        LOGGER.error("Failed to watch {}", created, e);
+                    }
+                }
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * Synchronize the triggers with the directory once, only changed files are applied.
+     * @return What changed.
+     * @throws IOException If the directory could not be read.
+     */
+    public synchronized ReloadReport reload() throws IOException {
+        final long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).filter(file -> file.toString().endsWith(".conf")).sorted().toList();
+        }
+
+        Map<Path, String> errors = new LinkedHashMap<>();
+        List<Change> changes = new ArrayList<>();
+        for (Path path : files) {
+            Entry old = entries.get(path);
+            long fileHash;
+            TriggerDefinition definition;
+            try {
+                fileHash = hash(FNV_OFFSET, Files.readAllBytes(path));
+                if (old != null && old.fileHash() == fileHash) continue;
+                definition = TriggerManager.load(path);
+            } catch (Exception e) {
+                errors.put(path, String.valueOf(e));
+                continue;
+            }
+            changes.add(new Change(path, definition, old, fileHash, geometryHash(definition), codeHash(definition)));
+        }
+
+        // Triggers whose geometry changed are created again, reusing the hull if only the position changed
+        List<RuntimeCompiler.Source> sources = new ArrayList<>();
+        for (Change change : changes) {
+            Entry old = change.old();
+            if (old == null || old.geometryHash() != change.geometryHash()) {
+                try {
+                    change.replacement = TriggerManager.fromDefinition(change.path(), change.definition(), old == null ? null : old.trigger().getGeometry());
+                } catch (RuntimeException e) {
+                    errors.put(change.path(), String.valueOf(e));
+                    change.failed = true;
+                    continue;
+                }
+            }
+            // New triggers always need a callback, cached scripts are not compiled again
+            if (isScript(change.definition()) && (change.replacement != null || old.codeHash() != change.codeHash())) {
+                sources.add(source(change.definition()));
+            }
+        }
+
+        // One compiler run for every changed script
+        Iterator<RuntimeCompiler.Result> compiled = RuntimeCompiler.compileAll(sources).iterator();
+        for (Change change : changes) {
+            if (change.failed) continue;
+            TriggerDefinition definition = change.definition();
+            if (change.replacement == null && change.old().codeHash() == change.codeHash()) continue;
+            try {
+                if (definition.getActions() != null && !definition.getActions().isEmpty()) {
+                    change.callback = DynamicConsumerWrapper.ofActions(definition.getActions());
+                } else if (definition.getCode() != null) {
+                    RuntimeCompiler.Result result = compiled.next();
+                    if (result.isSuccess()) {
+                        change.callback = result.wrap();
+                    } else {
+                        errors.put(change.path(), String.join("\n", result.diagnostics()));
+                        change.failed = true;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                errors.put(change.path(), e.getMessage());
+                change.failed = true;
+            }
+        }
+
+        List<Trigger> added = new ArrayList<>();
+        List<Trigger> replaced = new ArrayList<>();
+        List<Trigger> recompiled = new ArrayList<>();
+        List<Trigger> removed = new ArrayList<>();
+        List<Runnable> updates = new ArrayList<>(); // In place changes, only applied once the batch is committed, read by other threads through volatile fields
+        Map<Path, Entry> updated = new LinkedHashMap<>();
+        List<Path> deleted = new ArrayList<>();
+        TriggerManager.Batch batch = manager.batch();
+        for (Change change : changes) {
+            if (change.failed) {
+                if (change.callback != null) change.callback.release();
+                continue;
+            }
+            Entry old = change.old();
+            Trigger trigger;
+            if (change.replacement != null) {
+                // Not visible to anyone before the commit, so it can be set up right away
+                trigger = change.replacement;
+                if (change.callback != null) {
+                    change.callback.setPendingPolicy(change.definition().getPending());
+                    trigger.setTriggeredCallback(change.callback);
+                }
+                trigger.setInstance(instance);
+                if (old != null) {
+                    batch.replace(old.trigger(), trigger);
+                    replaced.add(trigger);
+                } else {
+                    batch.add(trigger);
+                    added.add(trigger);
+                }
+            } else {
+                trigger = old.trigger();
+                TriggerDefinition definition = change.definition();
+                String name = TriggerManager.definitionName(change.path(), definition);
+                if (old.codeHash() != change.codeHash()) {
+                    DynamicConsumerWrapper callback = change.callback;
+                    updates.add(() -> {
+                        // Set up before it is published, so no callback runs with the default policy
+                        if (callback != null) callback.setPendingPolicy(definition.getPending());
+                        trigger.setTriggeredCallback(callback);
+                    });
+                    recompiled.add(trigger);
+                }
+                updates.add(() -> apply(trigger, name, definition));
+            }
+            updated.put(change.path(), new Entry(trigger, change.fileHash(), change.geometryHash(), change.codeHash()));
+        }
+
+        Set<Path> present = new HashSet<>(files);
+        for (Map.Entry<Path, Entry> entry : entries.entrySet()) {
+            if (present.contains(entry.getKey())) continue;
+            // Players inside a deleted trigger exit it, like the previous version of a replaced one
+            batch.remove(entry.getValue().trigger(), true);
+            removed.add(entry.getValue().trigger());
+            deleted.add(entry.getKey());
+        }
+        try {
+            batch.commit();
+        } catch (RuntimeException e) {
+            // Nothing of this reload is applied, the previous triggers and their callbacks stay
+            for (Change change : changes) {
+                if (!change.failed && change.callback != null) change.callback.release();
+            }
+            throw e;
+        }
+        entries.putAll(updated);
+        deleted.forEach(entries::remove);
+        updates.forEach(Runnable::run);
+
+        ReloadReport report = new ReloadReport(List.copyOf(added), List.copyOf(replaced), List.copyOf(recompiled), List.copyOf(removed),
+                Collections.unmodifiableMap(errors), (System.nanoTime() - start) / 1000000.0);
+        if (report.hasChanges()) {
+            LOGGER.info("Reloaded triggers from {}: {} added, {} replaced, {} recompiled, {} removed", directory,
+                    added.size(), replaced.size(), recompiled.size(), removed.size());
+        }
+        errors.forEach((path, error) -> LOGGER.error("Failed to reload trigger {}, keeping the previous version: {}", path, error));
+        return report;
+    }
+
+    private static void apply(Trigger trigger, String name, TriggerDefinition definition) {
+        trigger.setName(Component.text(name));
+        trigger.setColor(TriggerManager.parseColor(definition.getDebugColor()));
+        trigger.setSubscriptions(definition.getEvents() != null ? definition.getEvents() : EnumSet.allOf(TriggeredCallback.Type.class));
+        trigger.setTickInterval(definition.getTickInterval());
+        DynamicConsumerWrapper callback = trigger.getTriggeredCallback();
+        if (callback != null) callback.setPendingPolicy(definition.getPending());
+    }
+
+    private static boolean isScript(TriggerDefinition definition) {
+        return definition.getCode() != null && (definition.getActions() == null || definition.getActions().isEmpty());
+    }
+
+    private static RuntimeCompiler.Source source(TriggerDefinition definition) {
+        return new RuntimeCompiler.Source(definition.getImports() == null ? "" : definition.getImports(), definition.getCode());
+    }
+
+    private static long geometryHash(TriggerDefinition definition) {
+        long hash = FNV_OFFSET;
+        if (definition.getAnchors() != null) {
+            hash = hash(hash, Trigger.Geometry.hash(definition.getAnchors()));
+        }
+        Vec pos = definition.getPos() == null ? Vec.ZERO : definition.getPos();
+        hash = hash(hash, Double.doubleToLongBits(pos.x()));
+        hash = hash(hash, Double.doubleToLongBits(pos.y()));
+        return hash(hash, Double.doubleToLongBits(pos.z()));
+    }
+
+    private static long codeHash(TriggerDefinition definition) {
+        long hash = hash(FNV_OFFSET, String.valueOf(definition.getImports()));
+        hash = hash(hash, String.valueOf(definition.getCode()));
+        if (definition.getActions() != null) {
+            for (String action : definition.getActions()) {
+                hash = hash(hash, action);
+            }
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, byte[] bytes) {
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ 0xff) * FNV_PRIME; // Separator, so "ab" + "c" differs from "a" + "bc"
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash ^ ((value >>> (i * 8)) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Get how long the directory has to be quiet before a reload starts.
+     * @return The debounce time in milliseconds.
+     */
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * Set how long the directory has to be quiet before a reload starts.
+     * @param debounceMillis The debounce time in milliseconds, at least 0.
+     */
+    public void setDebounceMillis(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Debounce time must not be negative, got " + debounceMillis);
+        }
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Get the trigger of a definition file.
+     * @param path The definition file.
+     * @return The trigger, null if the file was never loaded successfully.
+     */
+    public synchronized Trigger getTrigger(Path path) {
+        Entry entry = entries.get(path);
+        return entry == null ? null : entry.trigger();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Stop watching the directory. The loaded triggers stay in the index.
+     */
+    @Override
+    public void close() throws IOException {
+        WatchService service;
+        Thread watcher;
+        synchronized (this) {
+            service = watchService;
+            watcher = thread;
+            watchService = null;
+            thread = null;
+        }
+        if (service != null) service.close();
+        if (watcher != null) watcher.interrupt();
+    }
+
+    private record Entry(Trigger trigger, long fileHash, long geometryHash, long codeHash) {}
+
+    private static final class Change {
+        private final Path path;
+        private final TriggerDefinition definition;
+        private final Entry old;
+        private final long fileHash;
+        private final long geometryHash;
+        private final long codeHash;
+        private Trigger replacement; // null if the existing trigger is kept
+        private DynamicConsumerWrapper callback;
+        private boolean failed;
+
+        private Change(Path path, TriggerDefinition definition, Entry old, long fileHash, long geometryHash, long codeHash) {
+            this.path = path;
+            this.definition = definition;
+            this.old = old;
+            this.fileHash = fileHash;
+            this.geometryHash = geometryHash;
+            this.codeHash = codeHash;
+        }
+
+        Path path() { return path; }
+        TriggerDefinition definition() { return definition; }
+        Entry old() { return old; }
+        long fileHash() { return fileHash; }
+        long geometryHash() { return geometryHash; }
+        long codeHash() { return codeHash; }
+    }
+
+    /**
+     * The outcome of {@link #reload()}.
+     * @param added Triggers of new files.
+     * @param replaced Triggers that replaced a previous version because their geometry changed.
+     * @param recompiled Existing triggers that got a new callback.
+     * @param removed Triggers of deleted files.
+     * @param errors Files that could not be reloaded and the reason, their previous trigger is kept.
+     * @param millis How long the reload took.
+     */
+    public record ReloadReport(List<Trigger> added, List<Trigger> replaced, List<Trigger> recompiled, List<Trigger> removed,
+                               Map<Path, String> errors, double millis) {
+
+        /**
+         * @return true if any trigger was added, replaced, recompiled or removed.
+         */
+        public boolean hasChanges() {
+            return !added.isEmpty() || !replaced.isEmpty() || !recompiled.isEmpty() || !removed.isEmpty();
+        }
+    }
+}
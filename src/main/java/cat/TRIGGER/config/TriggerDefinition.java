@@ -1,5 +1,7 @@
 package cat.TRIGGER.config;
 
+import cat.TRIGGER.TriggeredCallback;
+import cat.TRIGGER.dynamic.DynamicConsumerWrapper;
 import net.minestom.server.coordinate.Vec;
 import ninja.leaping.configurate.objectmapping.Setting;
 
@@ -7,6 +9,9 @@ import java.util.List;
 
 public class TriggerDefinition {
 
+    @Setting("name")
+    private String name;
+
     @Setting("anchors")
     private List<Vec> anchors;
 
@@ -22,8 +27,23 @@ public class TriggerDefinition {
     @Setting("code")
     private String code;
 
+    @Setting("actions")
+    private List<String> actions;
+
+    @Setting("pending")
+    private DynamicConsumerWrapper.PendingPolicy pending = DynamicConsumerWrapper.PendingPolicy.BUFFER;
+
+    @Setting("events")
+    private List<TriggeredCallback.Type> events;
+
+    @Setting("tickInterval")
+    private int tickInterval = 1;
+
     public TriggerDefinition() {}
 
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
     public List<Vec> getAnchors() { return anchors; }
     public void setAnchors(List<Vec> anchors) { this.anchors = anchors; }
 
@@ -38,4 +58,16 @@ public class TriggerDefinition {
 
     public String getCode() { return code; }
     public void setCode(String code) { this.code = code; }
+
+    public List<String> getActions() { return actions; }
+    public void setActions(List<String> actions) { this.actions = actions; }
+
+    public DynamicConsumerWrapper.PendingPolicy getPending() { return pending; }
+    public void setPending(DynamicConsumerWrapper.PendingPolicy pending) { this.pending = pending; }
+
+    public List<TriggeredCallback.Type> getEvents() { return events; }
+    public void setEvents(List<TriggeredCallback.Type> events) { this.events = events; }
+
+    public int getTickInterval() { return tickInterval; }
+    public void setTickInterval(int tickInterval) { this.tickInterval = tickInterval; }
 }
\ No newline at end of file
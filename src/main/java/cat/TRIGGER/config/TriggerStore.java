@@ -0,0 +1,351 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER.config;
+
+import cat.TRIGGER.Trigger;
+import cat.TRIGGER.TriggerManager;
+import cat.TRIGGER.TriggeredCallback;
+import cat.TRIGGER.dynamic.DynamicConsumerWrapper;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.serializer.json.JSONComponentSerializer;
+import net.kyori.adventure.util.RGBLike;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Instance;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A compact, versioned binary format for whole sets of triggers, much faster to load than JSON.
+ * <p>
+ * The file starts with a string table that holds every name, import and function body once, triggers refer to it by index.
+ * Anchors and the computed {@link Trigger.Geometry} are stored as packed doubles, so loading never computes a hull.
+ * Files are read through a memory mapped {@link FileChannel}.
+ * <pre>
+ * int magic, int version
+ * int stringCount, (int length, byte[] utf8) * stringCount
+ * int triggerCount, trigger * triggerCount
+ * </pre>
+ */
+public final class TriggerStore {
+
+    private static final int MAGIC = 0x54524753; // "TRGS"
+    public static final int VERSION = 1;
+
+    private static final byte CALLBACK_NONE = 0;
+    private static final byte CALLBACK_SCRIPT = 1;
+    private static final byte CALLBACK_ACTIONS = 2;
+
+    // Explicit codes instead of enum ordinals, so reordering or extending an enum does not change the format
+    private static final byte PENDING_BUFFER = 0;
+    private static final byte PENDING_DROP = 1;
+
+    private static final int EVENT_ENTERED = 1;
+    private static final int EVENT_EXITED = 1 << 1;
+    private static final int EVENT_TICK = 1 << 2;
+
+    private TriggerStore() {}
+
+    /**
+     * Write triggers to a file, replacing it if it exists.
+     * The triggers are written to a temporary file next to it first, so readers never see a partially written store.
+     * @param path The file to write.
+     * @param triggers The triggers to write.
+     * @throws IOException If the file could not be written.
+     */
+    public static void write(Path path, Collection<Trigger> triggers) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Trigger trigger : triggers) {
+            intern(strings, JSONComponentSerializer.json().serialize(trigger.getName()));
+            DynamicConsumerWrapper callback = trigger.getTriggeredCallback();
+            if (callback == null) continue;
+            if (!callback.getActions().isEmpty()) {
+                callback.getActions().forEach(action -> intern(strings, action));
+            } else {
+                intern(strings, callback.getImports());
+                intern(strings, callback.getFunctionBody());
+            }
+        }
+
+        Path target = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            writeFile(temporary, triggers, strings);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    private static void writeFile(Path path, Collection<Trigger> triggers, Map<String, Integer> strings) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(triggers.size());
+            for (Trigger trigger : triggers) {
+                writeTrigger(out, trigger, strings);
+            }
+        }
+    }
+
+    private static void writeTrigger(DataOutputStream out, Trigger trigger, Map<String, Integer> strings) throws IOException {
+        out.writeLong(trigger.getUuid().getMostSignificantBits());
+        out.writeLong(trigger.getUuid().getLeastSignificantBits());
+        out.writeInt(strings.get(JSONComponentSerializer.json().serialize(trigger.getName())));
+        RGBLike color = trigger.getColor();
+        out.writeInt(TextColor.color(color).value());
+
+        Vec position = trigger.getPosition();
+        out.writeDouble(position.x());
+        out.writeDouble(position.y());
+        out.writeDouble(position.z());
+
+        List<Vec> anchors = trigger.getAnchors();
+        out.writeInt(anchors.size());
+        for (Vec anchor : anchors) {
+            out.writeDouble(anchor.x());
+            out.writeDouble(anchor.y());
+            out.writeDouble(anchor.z());
+        }
+
+        DynamicConsumerWrapper callback = trigger.getTriggeredCallback();
+        if (callback == null) {
+            out.writeByte(CALLBACK_NONE);
+        } else if (!callback.getActions().isEmpty()) {
+            out.writeByte(CALLBACK_ACTIONS);
+            out.writeInt(callback.getActions().size());
+            for (String action : callback.getActions()) {
+                out.writeInt(strings.get(action));
+            }
+        } else {
+            out.writeByte(CALLBACK_SCRIPT);
+            out.writeInt(strings.get(callback.getImports()));
+            out.writeInt(strings.get(callback.getFunctionBody()));
+            out.writeByte(pendingCode(callback.getPendingPolicy()));
+        }
+
+        int events = 0;
+        for (TriggeredCallback.Type type : trigger.getSubscriptions()) {
+            events |= eventBit(type);
+        }
+        out.writeByte(events);
+        out.writeInt(trigger.getTickInterval());
+
+        Trigger.Geometry geometry = trigger.getGeometry();
+        out.writeInt(geometry.version());
+        out.writeLong(geometry.hash());
+        writeDoubles(out, geometry.vertices());
+        out.writeInt(geometry.faces().length);
+        for (int[] face : geometry.faces()) {
+            out.writeInt(face.length);
+            for (int index : face) {
+                out.writeInt(index);
+            }
+        }
+        writeDoubles(out, geometry.planes());
+        writeDoubles(out, geometry.axes());
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String string) {
+        strings.putIfAbsent(string, strings.size());
+    }
+
+    private static byte pendingCode(DynamicConsumerWrapper.PendingPolicy policy) {
+        return switch (policy) {
+            case BUFFER -> PENDING_BUFFER;
+            case DROP -> PENDING_DROP;
+        };
+    }
+
+    private static DynamicConsumerWrapper.PendingPolicy pendingPolicy(byte code) {
+        return switch (code) {
+            case PENDING_BUFFER -> DynamicConsumerWrapper.PendingPolicy.BUFFER;
+            case PENDING_DROP -> DynamicConsumerWrapper.PendingPolicy.DROP;
+            default -> throw new IllegalArgumentException("Unknown pending policy " + code);
+        };
+    }
+
+    private static int eventBit(TriggeredCallback.Type type) {
+        return switch (type) {
+            case ENTERED -> EVENT_ENTERED;
+            case EXITED -> EVENT_EXITED;
+            case TICK -> EVENT_TICK;
+        };
+    }
+
+    /**
+     * Read all triggers of a file. Scripted callbacks are compiled in the background, see {@link DynamicConsumerWrapper#compileAsync(String, String)}.
+     * @param path The file to read.
+     * @return The triggers, in the order they were written.
+     * @throws IOException If the file could not be read or is not a trigger store of a supported version.
+     */
+    public static List<Trigger> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Trigger store too large: " + path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    /**
+     * Read all triggers of a file and bulk load them into the index of an instance.
+     * @param manager The {@link TriggerManager} to add the triggers to.
+     * @param instance The {@link Instance} the triggers belong to.
+     * @param path The file to read.
+     * @return The loaded triggers.
+     * @throws IOException If the file could not be read or is not a trigger store of a supported version.
+     */
+    public static List<Trigger> load(TriggerManager manager, Instance instance, Path path) throws IOException {
+        List<Trigger> triggers = read(path);
+        manager.addAll(instance, triggers);
+        return triggers;
+    }
+
+    /**
+     * Read all triggers from a buffer in the trigger store format.
+     * @param buffer The buffer, read from its current position.
+     * @return The triggers, in the order they were written.
+     * @throws IOException If the buffer does not contain a trigger store of a supported version.
+     */
+    public static List<Trigger> read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a trigger store");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported trigger store version " + version);
+
+            // Every string is at least its length
+            String[] strings = new String[readLength(buffer, Integer.BYTES)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readLength(buffer, 1)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            // Name components are shared by every trigger that refers to the same string. Callbacks are created per trigger,
+            // identical scripts only share their compiled class through the RuntimeCompiler cache
+            Map<Integer, Component> names = new HashMap<>();
+            int count = readLength(buffer, 1);
+            List<Trigger> triggers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                triggers.add(readTrigger(buffer, strings, names));
+            }
+            return triggers;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt trigger store", e);
+        }
+    }
+
+    private static Trigger readTrigger(ByteBuffer buffer, String[] strings, Map<Integer, Component> names) {
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        Component name = names.computeIfAbsent(buffer.getInt(), index -> JSONComponentSerializer.json().deserialize(strings[index]));
+        TextColor color = TextColor.color(buffer.getInt());
+        Vec position = new Vec(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+
+        int anchorCount = readLength(buffer, 3 * Double.BYTES);
+        List<Vec> anchors = new ArrayList<>(anchorCount);
+        for (int i = 0; i < anchorCount; i++) {
+            anchors.add(new Vec(buffer.getDouble(), buffer.getDouble(), buffer.getDouble()));
+        }
+
+        DynamicConsumerWrapper callback = null;
+        switch (buffer.get()) {
+            case CALLBACK_SCRIPT -> {
+                String imports = strings[buffer.getInt()];
+                String functionBody = strings[buffer.getInt()];
+                DynamicConsumerWrapper.PendingPolicy pending = pendingPolicy(buffer.get());
+                callback = DynamicConsumerWrapper.compileAsync(imports, functionBody);
+                callback.setPendingPolicy(pending);
+            }
+            case CALLBACK_ACTIONS -> {
+                String[] actions = new String[readLength(buffer, Integer.BYTES)];
+                for (int i = 0; i < actions.length; i++) {
+                    actions[i] = strings[buffer.getInt()];
+                }
+                callback = DynamicConsumerWrapper.ofActions(List.of(actions));
+            }
+            default -> {}
+        }
+
+        int events = buffer.get();
+        List<TriggeredCallback.Type> subscriptions = new ArrayList<>();
+        for (TriggeredCallback.Type type : TriggeredCallback.Type.values()) {
+            if ((events & eventBit(type)) != 0) subscriptions.add(type);
+        }
+        int tickInterval = buffer.getInt();
+
+        int geometryVersion = buffer.getInt();
+        long hash = buffer.getLong();
+        double[] vertices = readDoubles(buffer);
+        // Every face is at least its length
+        int[][] faces = new int[readLength(buffer, Integer.BYTES)][];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = new int[readLength(buffer, Integer.BYTES)];
+            buffer.asIntBuffer().get(faces[i]);
+            buffer.position(buffer.position() + faces[i].length * Integer.BYTES);
+        }
+        double[] planes = readDoubles(buffer);
+        double[] axes = readDoubles(buffer);
+        Trigger.Geometry geometry = new Trigger.Geometry(geometryVersion, hash, vertices, faces, planes, axes);
+
+        Trigger trigger = new Trigger(anchors, position, uuid, name, color, callback, geometry);
+        trigger.setSubscriptions(subscriptions);
+        trigger.setTickInterval(tickInterval);
+        return trigger;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer) {
+        double[] values = new double[readLength(buffer, Double.BYTES)];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Double.BYTES);
+        return values;
+    }
+
+    /**
+     * Read a length and check it against the remaining bytes, so a corrupt length fails before anything is allocated.
+     * @param buffer The buffer to read from.
+     * @param elementBytes The least amount of bytes every element takes up.
+     * @return The length.
+     */
+    private static int readLength(ByteBuffer buffer, int elementBytes) {
+        int length = buffer.getInt();
+        if (length < 0 || (long) length * elementBytes > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length + " with " + buffer.remaining() + " bytes remaining");
+        }
+        return length;
+    }
+}
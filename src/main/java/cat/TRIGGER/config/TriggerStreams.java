@@ -0,0 +1,187 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER.config;
+
+import cat.TRIGGER.Trigger;
+import cat.TRIGGER.TriggerGlobals;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.minestom.server.codec.Codec;
+import net.minestom.server.codec.Transcoder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Streaming import and export of many triggers, without building the whole document in memory.
+ * <p>
+ * Triggers are written either as one JSON array or as NDJSON (one trigger per line). Reading accepts both, every trigger
+ * is handed to the sink as soon as it is parsed. By default the {@link TriggerTypeAdapter} format is used, the overloads
+ * taking a {@link Codec} use that codec instead, like {@link TriggerGlobals#CODEC}.
+ */
+public final class TriggerStreams {
+
+    private TriggerStreams() {}
+
+    /**
+     * Write triggers to a file, as NDJSON if the file name ends with {@code .ndjson} or {@code .jsonl} and as a JSON array otherwise.
+     * @param path The file to write.
+     * @param triggers The triggers to write.
+     * @throws IOException If the file could not be written.
+     */
+    public static void write(Path path, Iterable<Trigger> triggers) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(writer, triggers, isNdjson(path));
+        }
+    }
+
+    /**
+     * Write triggers in the {@link TriggerTypeAdapter} format.
+     * @param writer The writer, it is not closed.
+     * @param triggers The triggers to write.
+     * @param ndjson true to write one trigger per line, false to write a JSON array.
+     * @throws IOException If writing failed.
+     */
+    public static void write(Writer writer, Iterable<Trigger> triggers, boolean ndjson) throws IOException {
+        write(writer, triggers, ndjson, (out, trigger) -> TriggerGlobals.triggerTypeAdapter.write(out, trigger));
+    }
+
+    /**
+     * Write triggers with a {@link Codec}.
+     * @param writer The writer, it is not closed.
+     * @param triggers The triggers to write.
+     * @param ndjson true to write one trigger per line, false to write a JSON array.
+     * @param codec The codec, usually {@link TriggerGlobals#CODEC}.
+     * @throws IOException If writing failed.
+     */
+    public static void write(Writer writer, Iterable<Trigger> triggers, boolean ndjson, Codec<Trigger> codec) throws IOException {
+        write(writer, triggers, ndjson, (out, trigger) -> TriggerGlobals.GSON.toJson(codec.encode(Transcoder.JSON, trigger).orElseThrow(), out));
+    }
+
+    private static void write(Writer writer, Iterable<Trigger> triggers, boolean ndjson, TriggerWriter element) throws IOException {
+        if (ndjson) {
+            // A JsonWriter only takes one top level value, so every line gets its own
+            Writer line = new NonClosingWriter(writer);
+            for (Trigger trigger : triggers) {
+                JsonWriter out = new JsonWriter(line);
+                element.write(out, trigger);
+                out.flush();
+                writer.write('\n');
+            }
+        } else {
+            JsonWriter out = new JsonWriter(new NonClosingWriter(writer));
+            out.beginArray();
+            for (Trigger trigger : triggers) {
+                element.write(out, trigger);
+            }
+            out.endArray();
+            out.flush();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Read all triggers of a file, which may be a JSON array or NDJSON.
+     * @param path The file to read.
+     * @param sink Receives every trigger as soon as it is parsed.
+     * @return The amount of triggers read.
+     * @throws IOException If the file could not be read or contains malformed triggers.
+     */
+    public static int read(Path path, Consumer<Trigger> sink) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader, sink);
+        }
+    }
+
+    /**
+     * Read triggers in the {@link TriggerTypeAdapter} format, either a JSON array or NDJSON.
+     * @param reader The reader, it is not closed.
+     * @param sink Receives every trigger as soon as it is parsed.
+     * @return The amount of triggers read.
+     * @throws IOException If reading failed or the input contains malformed triggers.
+     */
+    public static int read(Reader reader, Consumer<Trigger> sink) throws IOException {
+        return read(reader, sink, TriggerGlobals.triggerTypeAdapter::read);
+    }
+
+    /**
+     * Read triggers with a {@link Codec}, either a JSON array or NDJSON.
+     * @param reader The reader, it is not closed.
+     * @param sink Receives every trigger as soon as it is parsed.
+     * @param codec The codec, usually {@link TriggerGlobals#CODEC}.
+     * @return The amount of triggers read.
+     * @throws IOException If reading failed or the input contains malformed triggers.
+     */
+    public static int read(Reader reader, Consumer<Trigger> sink, Codec<Trigger> codec) throws IOException {
+        return read(reader, sink, in -> {
+            JsonElement element = JsonParser.parseReader(in);
+            return codec.decode(Transcoder.JSON, element).orElseThrow();
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int read(Reader reader, Consumer<Trigger> sink, TriggerReader element) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true); // Allows multiple top level values, which is what NDJSON is
+        int count = 0;
+        try {
+            while (in.peek() != JsonToken.END_DOCUMENT) {
+                if (in.peek() == JsonToken.BEGIN_ARRAY) {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        sink.accept(element.read(in));
+                        count++;
+                    }
+                    in.endArray();
+                } else {
+                    sink.accept(element.read(in));
+                    count++;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed trigger #" + (count + 1), e);
+        }
+        return count;
+    }
+
+    private static boolean isNdjson(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    @FunctionalInterface
+    private interface TriggerWriter {
+        void write(JsonWriter out, Trigger trigger) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface TriggerReader {
+        Trigger read(JsonReader in) throws IOException;
+    }
+
+    // Keeps the JsonWriters from closing the caller's writer
+    private static final class NonClosingWriter extends FilterWriter {
+        NonClosingWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -11,6 +11,8 @@
 package cat.TRIGGER.config;
 
 import cat.TRIGGER.Trigger;
+import cat.TRIGGER.TriggerGlobals;
+import cat.TRIGGER.TriggeredCallback;
 import cat.TRIGGER.dynamic.DynamicConsumerWrapper;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
@@ -24,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -72,7 +75,29 @@ public class TriggerTypeAdapter extends TypeAdapter<Trigger> {
         out.beginObject();
         out.name("functionBody").value(wrapper.getFunctionBody());
         out.name("imports").value(wrapper.getImports());
+        if (!wrapper.getActions().isEmpty()) {
+            out.name("actions");
+            out.beginArray();
+            for (String action : wrapper.getActions()) {
+                out.value(action);
+            }
+            out.endArray();
+        }
+        out.name("pending").value(wrapper.getPendingPolicy().name());
         out.endObject();
+
+        out.name("events");
+        out.beginArray();
+        for (TriggeredCallback.Type type : trigger.getSubscriptions()) {
+            out.value(type.name());
+        }
+        out.endArray();
+
+        out.name("tickInterval").value(trigger.getTickInterval());
+
+        if (TriggerGlobals.writeGeometry) {
+            writeGeometry(out, trigger.getGeometry());
+        }
         out.endObject();
     }
 
@@ -83,6 +108,11 @@ public class TriggerTypeAdapter extends TypeAdapter<Trigger> {
         Component name = Component.text("unnamed");
         String imports = null;
         String functionBody = null;
+        List<String> actions = null;
+        DynamicConsumerWrapper.PendingPolicy pending = DynamicConsumerWrapper.PendingPolicy.BUFFER;
+        List<TriggeredCallback.Type> events = null;
+        int tickInterval = 1;
+        Trigger.Geometry geometry = null;
 
         in.beginObject();
         while (in.hasNext()) {
@@ -127,18 +157,129 @@ public class TriggerTypeAdapter extends TypeAdapter<Trigger> {
                         switch (in.nextName()) {
                             case "imports" -> imports = in.nextString();
                             case "functionBody" -> functionBody = in.nextString();
+                            case "actions" -> {
+                                actions = new ArrayList<>();
+                                in.beginArray();
+                                while (in.hasNext()) {
+                                    actions.add(in.nextString());
+                                }
+                                in.endArray();
+                            }
+                            case "pending" -> pending = DynamicConsumerWrapper.PendingPolicy.valueOf(in.nextString());
+                            default -> in.skipValue();
                         }
                     }
                     in.endObject();
                 }
+                case "events" -> {
+                    events = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        events.add(TriggeredCallback.Type.valueOf(in.nextString()));
+                    }
+                    in.endArray();
+                }
+                case "tickInterval" -> tickInterval = in.nextInt();
+                case "geometry" -> geometry = readGeometry(in);
                 default -> in.skipValue();
             }
         }
         in.endObject();
         try {
-            return new Trigger(anchors, position, UUID.randomUUID(), name, NamedTextColor.RED, new DynamicConsumerWrapper(imports, functionBody));
+            DynamicConsumerWrapper callback;
+            if (actions != null && !actions.isEmpty()) {
+                callback = DynamicConsumerWrapper.ofActions(actions);
+            } else {
+                // The script compiles in the background, the trigger is usable for collision right away
+                callback = DynamicConsumerWrapper.compileAsync(imports, functionBody);
+                callback.setPendingPolicy(pending);
+            }
+            Trigger trigger = new Trigger(anchors, position, UUID.randomUUID(), name, NamedTextColor.RED, callback, geometry);
+            if (events != null) trigger.setSubscriptions(events);
+            trigger.setTickInterval(tickInterval);
+            return trigger;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
+
+    private static void writeGeometry(JsonWriter out, Trigger.Geometry geometry) throws IOException {
+        out.name("geometry");
+        out.beginObject();
+        out.name("version").value(geometry.version());
+        out.name("hash").value(geometry.hash());
+        writeDoubles(out, "vertices", geometry.vertices());
+        out.name("faces");
+        out.beginArray();
+        for (int[] face : geometry.faces()) {
+            out.beginArray();
+            for (int index : face) {
+                out.value(index);
+            }
+            out.endArray();
+        }
+        out.endArray();
+        writeDoubles(out, "planes", geometry.planes());
+        writeDoubles(out, "axes", geometry.axes());
+        out.endObject();
+    }
+
+    private static void writeDoubles(JsonWriter out, String name, double[] values) throws IOException {
+        out.name(name);
+        out.beginArray();
+        for (double value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    private static Trigger.Geometry readGeometry(JsonReader in) throws IOException {
+        int version = -1;
+        long hash = 0;
+        double[] vertices = new double[0];
+        int[][] faces = new int[0][];
+        double[] planes = new double[0];
+        double[] axes = new double[0];
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "version" -> version = in.nextInt();
+                case "hash" -> hash = in.nextLong();
+                case "vertices" -> vertices = readDoubles(in);
+                case "faces" -> {
+                    List<int[]> faceList = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        List<Integer> face = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            face.add(in.nextInt());
+                        }
+                        in.endArray();
+                        faceList.add(face.stream().mapToInt(Integer::intValue).toArray());
+                    }
+                    in.endArray();
+                    faces = faceList.toArray(int[][]::new);
+                }
+                case "planes" -> planes = readDoubles(in);
+                case "axes" -> axes = readDoubles(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Trigger.Geometry(version, hash, vertices, faces, planes, axes);
+    }
+
+    private static double[] readDoubles(JsonReader in) throws IOException {
+        double[] values = new double[16];
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (count == values.length) values = Arrays.copyOf(values, count * 2);
+            values[count++] = in.nextDouble();
+        }
+        in.endArray();
+        return Arrays.copyOf(values, count);
+    }
 }
@@ -0,0 +1,180 @@
+package cat.TRIGGER.dynamic;
+
+import cat.TRIGGER.TriggeredCallback;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.potion.Potion;
+import net.minestom.server.potion.PotionEffect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Compiles simple declarative actions into a callback, without running the Java compiler.
+ * <p>
+ * Every action is one line of the form {@code [ENTERED|EXITED|TICK] <action> <arguments>}, without a type the action
+ * runs for every callback. The available actions are:
+ * <ul>
+ *     <li>{@code message <text>} sends a chat message</li>
+ *     <li>{@code actionbar <text>} sends an action bar message</li>
+ *     <li>{@code teleport <x> <y> <z> [<yaw> <pitch>]} teleports the player</li>
+ *     <li>{@code effect <effect> [<amplifier>] [<ticks>]} gives the player a potion effect, like {@code effect speed 1 200}</li>
+ *     <li>{@code command <command>} runs a command as the player</li>
+ *     <li>{@code console <command>} runs a command as the console</li>
+ * </ul>
+ * Texts and commands may contain {@code {player}} and {@code {trigger}}, which are replaced with the player's username
+ * and the trigger's name.
+ */
+public final class ActionCompiler {
+
+    private ActionCompiler() {}
+
+    /**
+     * Compile a list of actions into a callback, which runs them in order.
+     * @param actions The actions, one per entry.
+     * @return The compiled callback.
+     * @throws IllegalArgumentException If an action is malformed, the message names the broken action.
+     */
+    @SuppressWarnings("unchecked")
+    public static Consumer<TriggeredCallback> compile(List<String> actions) {
+        List<Consumer<TriggeredCallback>> compiled = new ArrayList<>(actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            try {
+                compiled.add(compileAction(actions.get(i)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Action " + (i + 1) + " \"" + actions.get(i) + "\": " + e.getMessage(), e);
+            }
+        }
+        Consumer<TriggeredCallback>[] chain = compiled.toArray(Consumer[]::new);
+        if (chain.length == 1) return chain[0];
+        return callback -> {
+            for (Consumer<TriggeredCallback> action : chain) {
+                action.accept(callback);
+            }
+        };
+    }
+
+    private static Consumer<TriggeredCallback> compileAction(String line) {
+        String rest = line.strip();
+        TriggeredCallback.Type type = null;
+        String first = firstWord(rest);
+        for (TriggeredCallback.Type candidate : TriggeredCallback.Type.values()) {
+            if (candidate.name().equalsIgnoreCase(first)) {
+                type = candidate;
+                rest = afterFirstWord(rest);
+                break;
+            }
+        }
+        String name = firstWord(rest);
+        String argument = afterFirstWord(rest);
+
+        Consumer<TriggeredCallback> action = switch (name.toLowerCase(Locale.ROOT)) {
+            case "message" -> text(argument, Player::sendMessage);
+            case "actionbar" -> text(argument, Player::sendActionBar);
+            case "teleport" -> teleport(argument);
+            case "effect" -> effect(argument);
+            case "command" -> command(argument, false);
+            case "console" -> command(argument, true);
+            case "" -> throw new IllegalArgumentException("Missing action");
+            default -> throw new IllegalArgumentException("Unknown action " + name);
+        };
+        if (type == null) return action;
+        final TriggeredCallback.Type only = type;
+        return callback -> {
+            if (callback.type() == only) action.accept(callback);
+        };
+    }
+
+    private static Consumer<TriggeredCallback> text(String template, BiConsumer<Player, Component> sender) {
+        if (!hasPlaceholders(template)) {
+            Component text = Component.text(template);
+            return callback -> sender.accept(callback.player(), text);
+        }
+        return callback -> sender.accept(callback.player(), Component.text(format(template, callback)));
+    }
+
+    private static Consumer<TriggeredCallback> teleport(String argument) {
+        double[] values = numbers(argument);
+        if (values.length != 3 && values.length != 5) {
+            throw new IllegalArgumentException("Expected <x> <y> <z> [<yaw> <pitch>]");
+        }
+        Pos target = values.length == 3
+                ? new Pos(values[0], values[1], values[2])
+                : new Pos(values[0], values[1], values[2], (float) values[3], (float) values[4]);
+        return callback -> callback.player().teleport(target);
+    }
+
+    private static Consumer<TriggeredCallback> effect(String argument) {
+        String key = firstWord(argument);
+        if (key.isEmpty()) throw new IllegalArgumentException("Expected <effect> [<amplifier>] [<ticks>]");
+        PotionEffect effect = PotionEffect.fromKey(key.contains(":") ? key : "minecraft:" + key);
+        if (effect == null) throw new IllegalArgumentException("Unknown effect " + key);
+        double[] values = numbers(afterFirstWord(argument));
+        if (values.length > 2) throw new IllegalArgumentException("Expected <effect> [<amplifier>] [<ticks>]");
+        int amplifier = values.length > 0 ? (int) values[0] : 0;
+        int duration = values.length > 1 ? (int) values[1] : 20 * 30;
+        Potion potion = new Potion(effect, amplifier, duration);
+        return callback -> callback.player().addEffect(potion);
+    }
+
+    private static Consumer<TriggeredCallback> command(String command, boolean console) {
+        if (command.isEmpty()) throw new IllegalArgumentException("Missing command");
+        String stripped = command.startsWith("/") ? command.substring(1) : command;
+        boolean placeholders = hasPlaceholders(stripped);
+        return callback -> {
+            String resolved = placeholders ? format(stripped, callback) : stripped;
+            if (console) {
+                MinecraftServer.getCommandManager().execute(MinecraftServer.getCommandManager().getConsoleSender(), resolved);
+            } else {
+                MinecraftServer.getCommandManager().execute(callback.player(), resolved);
+            }
+        };
+    }
+
+    private static boolean hasPlaceholders(String template) {
+        return template.contains("{player}") || template.contains("{trigger}");
+    }
+
+    private static String format(String template, TriggeredCallback callback) {
+        return template
+                .replace("{player}", callback.player().getUsername())
+                .replace("{trigger}", PlainTextComponentSerializer.plainText().serialize(callback.trigger().getName()));
+    }
+
+    private static double[] numbers(String argument) {
+        if (argument.isEmpty()) return new double[0];
+        String[] parts = argument.split("\\s+");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                values[i] = Double.parseDouble(parts[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + parts[i]);
+            }
+        }
+        return values;
+    }
+
+    private static String firstWord(String text) {
+        int space = indexOfWhitespace(text);
+        return space < 0 ? text : text.substring(0, space);
+    }
+
+    private static String afterFirstWord(String text) {
+        int space = indexOfWhitespace(text);
+        return space < 0 ? "" : text.substring(space).strip();
+    }
+
+    private static int indexOfWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) return i;
+        }
+        return -1;
+    }
+}
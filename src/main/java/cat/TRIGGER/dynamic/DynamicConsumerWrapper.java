@@ -1,34 +1,171 @@
 package cat.TRIGGER.dynamic;
 
 import cat.TRIGGER.TriggeredCallback;
+import net.minestom.server.MinecraftServer;
 import net.minestom.server.codec.Codec;
 import net.minestom.server.codec.StructCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.UUID;
+import java.lang.ref.Cleaner;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 public class DynamicConsumerWrapper implements Consumer<TriggeredCallback> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DynamicConsumerWrapper.class);
+
     public static Codec<DynamicConsumerWrapper> CODEC = StructCodec.struct(
-            "imports", Codec.STRING, DynamicConsumerWrapper::getImports,
-            "functionBody", Codec.STRING, DynamicConsumerWrapper::getFunctionBody,
-            (s, s2) -> {
-                try {
-                    return new DynamicConsumerWrapper(s, s2);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+            "imports", Codec.STRING.optional(""), DynamicConsumerWrapper::getImports,
+            "functionBody", Codec.STRING.optional(""), DynamicConsumerWrapper::getFunctionBody,
+            "actions", Codec.STRING.list().optional(List.of()), DynamicConsumerWrapper::getActions,
+            "pending", Codec.Enum(PendingPolicy.class).optional(PendingPolicy.BUFFER), DynamicConsumerWrapper::getPendingPolicy,
+            (imports, functionBody, actions, pending) -> {
+                if (!actions.isEmpty()) return ofActions(actions);
+                DynamicConsumerWrapper wrapper = compileAsync(imports, functionBody);
+                wrapper.setPendingPolicy(pending);
+                return wrapper;
             }
     );
 
+    public static final int DEFAULT_BUFFER_LIMIT = 64;
+
     private final String functionBody;
     private final String imports;
-    private final Consumer<TriggeredCallback> delegate;
+    private final List<String> actions;
+    private final String hash; // null if there is no compiled script to release
+    private final CompletableFuture<Consumer<TriggeredCallback>> compilation;
+    private final Cleaner.Cleanable cleanable; // Gives back the cache reference once, null if there is none
+    private volatile Consumer<TriggeredCallback> delegate; // null until the script is compiled
+    private final ArrayDeque<TriggeredCallback> pending = new ArrayDeque<>(); // Guarded by itself
+    private Consumer<TriggeredCallback> replaying; // The compiled script while the buffer is replayed, guarded by pending
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile PendingPolicy pendingPolicy = PendingPolicy.BUFFER;
+    private volatile int bufferLimit = DEFAULT_BUFFER_LIMIT;
 
     public DynamicConsumerWrapper(String imports, String functionBody) throws Exception {
+        this(imports, functionBody, RuntimeCompiler.compileConsumer(imports, functionBody));
+    }
+
+    /**
+     * Wrap an already compiled script, see {@link RuntimeCompiler.Result#wrap()}.
+     * The wrapper takes over the cache reference held for the script.
+     * @param imports The imports of the script.
+     * @param functionBody The body of the script.
+     * @param delegate The compiled script.
+     */
+    DynamicConsumerWrapper(String imports, String functionBody, Consumer<TriggeredCallback> delegate) {
+        this.functionBody = functionBody;
+        this.imports = imports;
+        this.actions = List.of();
+        this.hash = RuntimeCompiler.hash(imports, functionBody);
+        this.delegate = delegate;
+        this.compilation = CompletableFuture.completedFuture(delegate);
+        this.cleanable = RuntimeCompiler.CLEANER.register(this, new Release(hash, compilation));
+    }
+
+    private DynamicConsumerWrapper(List<String> actions, Consumer<TriggeredCallback> delegate) {
+        this.functionBody = "";
+        this.imports = "";
+        this.actions = List.copyOf(actions);
+        this.hash = null;
+        this.delegate = delegate;
+        this.compilation = CompletableFuture.completedFuture(delegate);
+        this.cleanable = null;
+    }
+
+    private DynamicConsumerWrapper(String imports, String functionBody, CompletableFuture<Consumer<TriggeredCallback>> compilation) {
         this.functionBody = functionBody;
         this.imports = imports;
-        this.delegate = RuntimeCompiler.compileConsumer("DynamicClass_" + UUID.randomUUID().toString().replaceAll("-", ""), imports, functionBody);
+        this.actions = List.of();
+        this.hash = RuntimeCompiler.hash(imports, functionBody);
+        this.compilation = compilation;
+        this.cleanable = RuntimeCompiler.CLEANER.register(this, new Release(hash, compilation));
+    }
+
+    /**
+     * Create a wrapper from declarative actions instead of a script, see {@link ActionCompiler}.
+     * Actions are compiled right away without the Java compiler.
+     * @param actions The actions, one per entry.
+     * @return The wrapper.
+     * @throws IllegalArgumentException If an action is malformed.
+     */
+    public static DynamicConsumerWrapper ofActions(List<String> actions) {
+        return new DynamicConsumerWrapper(actions, ActionCompiler.compile(actions));
+    }
+
+    /**
+     * Create a wrapper that compiles its script in the background, without blocking the calling thread.
+     * Callbacks that arrive before the script is compiled are handled according to the {@link PendingPolicy}.
+     * If the script fails to compile, the error is logged and all callbacks are ignored.
+     * @param imports The imports of the script.
+     * @param functionBody The body of the script.
+     * @return The wrapper, which is bound to the compiled script once it is ready.
+     */
+    public static DynamicConsumerWrapper compileAsync(String imports, String functionBody) {
+        DynamicConsumerWrapper wrapper = new DynamicConsumerWrapper(imports, functionBody, RuntimeCompiler.compileConsumerAsync(imports, functionBody));
+        wrapper.compilation.whenComplete((compiled, error) -> {
+            if (error != null) {
+                LOGGER.error("Failed to compile trigger callback, it will be ignored", error);
+                wrapper.bind(callback -> {});
+            } else {
+                wrapper.bind(compiled);
+            }
+        });
+        return wrapper;
+    }
+
+    private void bind(Consumer<TriggeredCallback> compiled) {
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                delegate = compiled;
+                return;
+            }
+            replaying = compiled;
+        }
+        // Replayed on the tick thread like any other callback, new callbacks keep queueing up behind the buffer until it is empty
+        MinecraftServer.getSchedulerManager().scheduleNextTick(() -> replay(compiled));
+    }
+
+    private void replay(Consumer<TriggeredCallback> compiled) {
+        while (true) {
+            TriggeredCallback callback;
+            synchronized (pending) {
+                callback = pending.poll();
+                if (callback == null) {
+                    delegate = compiled;
+                    replaying = null;
+                    return;
+                }
+            }
+            try {
+                compiled.accept(callback);
+            } catch (Throwable t) {
+                LOGGER.error("Trigger callback failed", t);
+            }
+        }
+    }
+
+    /**
+     * Give back the cache reference of the script, called when the trigger is removed or gets a new callback.
+     * Once no callback uses the script anymore, its class is unloaded. The wrapper itself keeps working.
+     * Wrappers that are dropped without being released give back their reference once they are garbage collected.
+     */
+    public void release() {
+        if (cleanable != null) cleanable.clean();
+    }
+
+    // Runs at most once, on release or once the wrapper is unreachable. Must not reference the wrapper
+    private record Release(String hash, CompletableFuture<Consumer<TriggeredCallback>> compilation) implements Runnable {
+        @Override
+        public void run() {
+            compilation.whenComplete((compiled, error) -> {
+                if (error == null) RuntimeCompiler.release(hash);
+            });
+        }
     }
 
     public String getFunctionBody() {
@@ -39,8 +176,106 @@ public class DynamicConsumerWrapper implements Consumer<TriggeredCallback> {
         return imports;
     }
 
+    /**
+     * Get the declarative actions of this callback.
+     * @return The actions, empty if this callback is a script.
+     */
+    public List<String> getActions() {
+        return actions;
+    }
+
+    /**
+     * Check if the script has been compiled and bound, and callbacks are passed to it directly.
+     * @return true if the script is bound, false while it is still compiling.
+     */
+    public boolean isCompiled() {
+        return delegate != null;
+    }
+
+    /**
+     * Get the compilation of the script, for example to wait until every trigger of a world is ready.
+     * @return A future that completes with the compiled script, or exceptionally if it failed to compile.
+     */
+    public CompletableFuture<Consumer<TriggeredCallback>> getCompilation() {
+        return compilation;
+    }
+
+    /**
+     * Get what happens to callbacks that arrive while the script is still compiling.
+     * @return The {@link PendingPolicy}.
+     */
+    public PendingPolicy getPendingPolicy() {
+        return pendingPolicy;
+    }
+
+    /**
+     * Set what happens to callbacks that arrive while the script is still compiling.
+     * @param pendingPolicy The {@link PendingPolicy}.
+     */
+    public void setPendingPolicy(PendingPolicy pendingPolicy) {
+        this.pendingPolicy = pendingPolicy;
+    }
+
+    /**
+     * Get how many callbacks are buffered at most with {@link PendingPolicy#BUFFER}, further callbacks are dropped.
+     * @return The buffer limit.
+     */
+    public int getBufferLimit() {
+        return bufferLimit;
+    }
+
+    /**
+     * Set how many callbacks are buffered at most with {@link PendingPolicy#BUFFER}, further callbacks are dropped.
+     * @param bufferLimit The buffer limit, at least 0.
+     */
+    public void setBufferLimit(int bufferLimit) {
+        if (bufferLimit < 0) {
+            throw new IllegalArgumentException("Buffer limit must not be negative, got " + bufferLimit);
+        }
+        this.bufferLimit = bufferLimit;
+    }
+
+    /**
+     * Get how many callbacks were dropped while the script was still compiling, either by {@link PendingPolicy#DROP}
+     * or because the {@link DynamicConsumerWrapper#getBufferLimit() buffer limit} was reached.
+     * @return The amount of dropped callbacks.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
     @Override
     public void accept(TriggeredCallback o) {
+        Consumer<TriggeredCallback> delegate = this.delegate;
+        if (delegate == null) {
+            synchronized (pending) {
+                delegate = this.delegate;
+                if (delegate == null) {
+                    // Once the script is bound the buffer is drained within the tick, keep the order instead of dropping
+                    if (replaying != null || (pendingPolicy == PendingPolicy.BUFFER && pending.size() < bufferLimit)) {
+                        pending.add(o);
+                    } else if (dropped.getAndIncrement() == 0 && pendingPolicy == PendingPolicy.BUFFER) {
+                        LOGGER.warn("Callback buffer of a compiling script is full ({} callbacks), further callbacks are dropped until it is compiled", bufferLimit);
+                    }
+                    return;
+                }
+            }
+        }
         delegate.accept(o);
     }
+
+    /**
+     * What happens to callbacks that arrive while the script is still compiling.
+     */
+    public enum PendingPolicy {
+        /**
+         * Keep the callbacks, up to the {@link DynamicConsumerWrapper#getBufferLimit() buffer limit}, and replay them in order once the script is compiled.
+         * Callbacks that arrive during the replay are queued behind the buffer and never dropped, see {@link DynamicConsumerWrapper#getDroppedCount()}.
+         */
+        BUFFER,
+        /**
+         * Ignore the callbacks.
+         */
+        DROP
+    }
 }
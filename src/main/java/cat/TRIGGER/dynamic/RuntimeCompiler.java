@@ -4,55 +4,618 @@ import cat.TRIGGER.TriggeredCallback;
 
 import javax.tools.*;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.Cleaner;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class RuntimeCompiler {
 
-    public static Consumer<TriggeredCallback> compileConsumer(String className, String imports, String functionBody) throws Exception {
-        String fullClassName = "cat.TRIGGER.dynamic.generated." + className;
+    // Bump when the generated source template changes, so stale disk cache entries are ignored
+    private static final int TEMPLATE_VERSION = 2;
+    // Hidden classes have to be in the package of the lookup defining them
+    static final String PACKAGE = "cat.TRIGGER.dynamic";
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    // Maps the source hash of precompiled scripts to their class, see ScriptPrecompiler
+    static final String MANIFEST = "META-INF/cat.TRIGGER/scripts.properties";
+    static final String PRECOMPILED_PREFIX = "PrecompiledClass_";
+    private static volatile Map<String, String> precompiled = null;
+
+    private static final Map<String, CacheEntry> CACHE = new ConcurrentHashMap<>();
+    static final Cleaner CLEANER = Cleaner.create(); // Also releases the cache references of unreachable DynamicConsumerWrappers
+    private static final AtomicInteger LIVE_CLASSES = new AtomicInteger();
+    private static final Map<String, CompletableFuture<Consumer<TriggeredCallback>>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static volatile Path cacheDirectory = null;
+    private static volatile Executor executor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+            Thread.ofPlatform().daemon().name("TRIGGER-compiler-", 0).factory()
+    );
+
+    /**
+     * Set the {@link Executor} background compilations run on, see {@link RuntimeCompiler#compileConsumerAsync(String, String)}.
+     * By default, this is a pool of daemon threads using half of the available cores.
+     * @param executor The {@link Executor}.
+     */
+    public static void setExecutor(Executor executor) {
+        RuntimeCompiler.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Set the directory compiled scripts are stored in, so a restart can skip javac for unchanged scripts.
+     * @param directory The cache directory, or null to only cache in memory.
+     */
+    public static void setCacheDirectory(Path directory) {
+        cacheDirectory = directory;
+    }
+
+    /**
+     * Get the directory compiled scripts are stored in.
+     * @return The cache directory, or null if there is none.
+     */
+    public static Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Get the content hash of a script, which identifies it in the caches.
+     * It covers the imports, the function body, the template and the Java version compiling it.
+     * @param imports The imports of the script.
+     * @param functionBody The body of the script.
+     * @return The hex encoded hash.
+     */
+    public static String hash(String imports, String functionBody) {
+        return digest(TEMPLATE_VERSION + "\0" + Runtime.version(), imports, functionBody);
+    }
+
+    /**
+     * Get the hash identifying a script in the manifest of precompiled scripts.
+     * Unlike {@link RuntimeCompiler#hash(String, String)} it does not cover the Java version,
+     * precompiled classes stay usable on newer runtimes.
+     */
+    static String sourceHash(String imports, String functionBody) {
+        return digest(String.valueOf(TEMPLATE_VERSION), imports, functionBody);
+    }
+
+    private static String digest(String prefix, String imports, String functionBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((prefix + "\0").getBytes(StandardCharsets.UTF_8));
+            digest.update(imports.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(functionBody.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compile a script, or get the already compiled instance of an identical script.
+     * Identical scripts share one class and one instance. Every call holds a reference to the script
+     * until it is given back with {@link RuntimeCompiler#release(String)}.
+     * @param imports The imports of the script.
+     * @param functionBody The body of the script.
+     * @return The compiled consumer.
+     * @throws Exception If the script could not be compiled.
+     */
+    public static Consumer<TriggeredCallback> compileConsumer(String imports, String functionBody) throws Exception {
+        String hash = hash(imports, functionBody);
+        Consumer<TriggeredCallback> consumer = acquire(hash);
+        if (consumer != null) return consumer;
 
-        // Full source code string
-        String sourceCode = """
-                package cat.TRIGGER.dynamic.generated;
+        CompletableFuture<Consumer<TriggeredCallback>> future = new CompletableFuture<>();
+        CompletableFuture<Consumer<TriggeredCallback>> existing = IN_FLIGHT.putIfAbsent(hash, future);
+        if (existing == null) {
+            build(hash, imports, functionBody, future);
+        } else {
+            future = existing;
+        }
+        try {
+            return retain(hash, future.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Compile a script in the background, or get the already compiled instance of an identical script.
+     * Identical scripts that are requested while one of them is still compiling share the same compilation.
+     * Like {@link RuntimeCompiler#compileConsumer(String, String)}, every call holds a reference to the script.
+     * @param imports The imports of the script.
+     * @param functionBody The body of the script.
+     * @return A future that completes with the compiled consumer, or exceptionally if the script could not be compiled.
+     */
+    public static CompletableFuture<Consumer<TriggeredCallback>> compileConsumerAsync(String imports, String functionBody) {
+        String hash = hash(imports, functionBody);
+        Consumer<TriggeredCallback> consumer = acquire(hash);
+        if (consumer != null) return CompletableFuture.completedFuture(consumer);
+
+        CompletableFuture<Consumer<TriggeredCallback>> future = new CompletableFuture<>();
+        CompletableFuture<Consumer<TriggeredCallback>> existing = IN_FLIGHT.putIfAbsent(hash, future);
+        if (existing != null) return existing.thenApply(compiled -> retain(hash, compiled));
+        try {
+            final CompletableFuture<Consumer<TriggeredCallback>> building = future;
+            executor.execute(() -> build(hash, imports, functionBody, building));
+        } catch (RuntimeException e) {
+            IN_FLIGHT.remove(hash, future);
+            future.completeExceptionally(e);
+        }
+        return future.thenApply(compiled -> retain(hash, compiled));
+    }
+
+    // Loads or compiles a script that is not in the memory cache, and completes the in flight future with it
+    private static void build(String hash, String imports, String functionBody, CompletableFuture<Consumer<TriggeredCallback>> future) {
+        try {
+            future.complete(loadOrCompile(hash, imports, functionBody));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        } finally {
+            IN_FLIGHT.remove(hash, future);
+        }
+    }
+
+    /**
+     * Give back a reference to a compiled script. Once no references are left, the script is dropped from the memory
+     * cache, and its class is unloaded as soon as its consumer is no longer used.
+     * @param hash The {@link RuntimeCompiler#hash(String, String) hash} of the script.
+     */
+    public static void release(String hash) {
+        CACHE.computeIfPresent(hash, (key, entry) -> --entry.references <= 0 ? null : entry);
+    }
 
-                import cat.TRIGGER.dynamic.DynamicFunction;
-                %s
+    /**
+     * Get the amount of generated classes that have not been unloaded yet.
+     * Unloading happens during garbage collection, so this can lag behind {@link RuntimeCompiler#release(String)}.
+     * @return The amount of live generated classes.
+     */
+    public static int getLiveClassCount() {
+        return LIVE_CLASSES.get();
+    }
+
+    /**
+     * Get the amount of scripts in the memory cache, which are referenced by at least one callback.
+     * @return The amount of cached scripts.
+     */
+    public static int getCachedScriptCount() {
+        return CACHE.size();
+    }
 
-                public class %s implements DynamicFunction {
-                    @Override
-                    public void accept(Object o) {
-                        %s
+    // Takes another reference to a cached script
+    private static Consumer<TriggeredCallback> acquire(String hash) {
+        CacheEntry entry = CACHE.computeIfPresent(hash, (key, existing) -> {
+            existing.references++;
+            return existing;
+        });
+        return entry == null ? null : entry.consumer;
+    }
+
+    // Takes a reference to a compiled script, publishing it if no identical script is cached
+    private static Consumer<TriggeredCallback> retain(String hash, Consumer<TriggeredCallback> consumer) {
+        return CACHE.compute(hash, (key, existing) -> {
+            if (existing == null) return new CacheEntry(consumer);
+            existing.references++;
+            return existing;
+        }).consumer;
+    }
+
+    // A compiled script and the amount of references held to it, only modified inside CACHE.compute
+    private static final class CacheEntry {
+        final Consumer<TriggeredCallback> consumer;
+        int references = 1;
+
+        CacheEntry(Consumer<TriggeredCallback> consumer) {
+            this.consumer = consumer;
+        }
+    }
+
+    /**
+     * Drop every compiled script from the in memory cache, the disk cache is kept.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Compile many scripts in a single compiler run, which is a lot faster than compiling them one by one.
+     * Scripts that are already cached are not compiled again, and a broken script does not affect the others.
+     * @param sources The scripts to compile.
+     * @return One result for each source, in the same order.
+     */
+    public static List<Result> compileAll(List<Source> sources) {
+        Result[] results = new Result[sources.size()];
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            Source source = sources.get(i);
+            String hash = hash(source.imports(), source.functionBody());
+            Consumer<TriggeredCallback> consumer = acquire(hash);
+            if (consumer == null && !pending.containsKey(hash)) {
+                consumer = loadExisting(hash, source.imports(), source.functionBody());
+                if (consumer != null) consumer = retain(hash, consumer);
+            }
+            if (consumer != null) {
+                results[i] = new Result(source, consumer, List.of());
+            } else {
+                pending.computeIfAbsent(hash, key -> new ArrayList<>()).add(i);
+            }
+        }
+        if (pending.isEmpty()) return List.of(results);
+
+        Map<String, JavaSourceFromString> units = new LinkedHashMap<>();
+        pending.forEach((hash, indexes) -> {
+            Source source = sources.get(indexes.getFirst());
+            units.put(hash, JavaSourceFromString.of(hash, source.imports(), source.functionBody()));
+        });
+        Map<String, List<String>> failures = new HashMap<>();
+        Map<String, byte[]> classes = compileUnits(units, failures);
+
+        for (Map.Entry<String, List<Integer>> entry : pending.entrySet()) {
+            String hash = entry.getKey();
+            List<String> errors = failures.get(hash);
+            Consumer<TriggeredCallback> consumer = null;
+            if (errors == null) {
+                Map<String, byte[]> own = classesOf(PACKAGE + ".DynamicClass_" + hash, classes);
+                try {
+                    consumer = instantiate(PACKAGE + ".DynamicClass_" + hash, own);
+                    store(hash, own);
+                } catch (Exception e) {
+                    errors = List.of(String.valueOf(e));
+                }
+            }
+            for (int index : entry.getValue()) {
+                // Every result holds its own reference
+                Consumer<TriggeredCallback> retained = consumer == null ? null : retain(hash, consumer);
+                results[index] = new Result(sources.get(index), retained, errors == null ? List.of() : List.copyOf(errors));
+            }
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Compile scripts into classes that are packaged ahead of time, see {@link ScriptPrecompiler}.
+     * @param sources The scripts to compile.
+     * @param failures Receives the compiler errors of the broken scripts, by {@link RuntimeCompiler#sourceHash(String, String) source hash}.
+     * @return The classes of each successfully compiled script, by source hash.
+     */
+    static Map<String, Map<String, byte[]>> precompile(Collection<Source> sources, Map<String, List<String>> failures) {
+        Map<String, JavaSourceFromString> units = new LinkedHashMap<>();
+        for (Source source : sources) {
+            String key = sourceHash(source.imports(), source.functionBody());
+            units.computeIfAbsent(key, k -> JavaSourceFromString.of(PRECOMPILED_PREFIX + k, source.imports(), source.functionBody(), k));
+        }
+        Set<String> keys = Set.copyOf(units.keySet());
+        Map<String, byte[]> classes = compileUnits(units, failures);
+        Map<String, Map<String, byte[]>> compiled = new LinkedHashMap<>();
+        for (String key : keys) {
+            if (!failures.containsKey(key)) compiled.put(key, classesOf(PACKAGE + "." + PRECOMPILED_PREFIX + key, classes));
+        }
+        return compiled;
+    }
+
+    /**
+     * Run the compiler over many units at once.
+     * @param units The units to compile by their key, broken units are removed.
+     * @param failures Receives the errors of the broken units by their key.
+     * @return The classes of all units that compiled.
+     */
+    private static Map<String, byte[]> compileUnits(Map<String, JavaSourceFromString> units, Map<String, List<String>> failures) {
+        Map<String, byte[]> classes = Map.of();
+        JavaCompiler compiler = compiler();
+        try (StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, null)) {
+            // javac writes no classes at all if a single unit fails, so the broken units are dropped and the rest compiled again
+            while (!units.isEmpty()) {
+                DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+                ClassFileManager fileManager = new ClassFileManager(standardFileManager);
+                if (compiler.getTask(null, fileManager, diagnostics, null, null, units.values()).call()) {
+                    classes = fileManager.getClasses();
+                    break;
+                }
+                List<String> unattributed = new ArrayList<>();
+                boolean attributed = false;
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() != Diagnostic.Kind.ERROR) continue;
+                    if (diagnostic.getSource() instanceof JavaSourceFromString unit && units.containsKey(unit.hash)) {
+                        failures.computeIfAbsent(unit.hash, key -> new ArrayList<>()).add(unit.describe(diagnostic));
+                        attributed = true;
+                    } else {
+                        unattributed.add(diagnostic.getMessage(Locale.ROOT));
                     }
                 }
-                """.formatted(imports, className, functionBody);
+                if (!attributed) {
+                    if (unattributed.isEmpty()) unattributed.add("Compilation failed!");
+                    for (String hash : units.keySet()) failures.put(hash, unattributed);
+                    units.clear();
+                }
+                units.keySet().removeAll(failures.keySet());
+            }
+        } catch (IOException e) {
+            // Only thrown when closing the file manager, the classes are already in memory
+        }
+        return classes;
+    }
 
-        // Compile in-memory
+    /**
+     * The imports and body of a script.
+     * @param imports The imports of the script.
+     * @param functionBody The body of the script.
+     */
+    public record Source(String imports, String functionBody) {
+        public Source {
+            Objects.requireNonNull(imports, "imports");
+            Objects.requireNonNull(functionBody, "functionBody");
+        }
+    }
+
+    /**
+     * The outcome of compiling a single script with {@link RuntimeCompiler#compileAll(List)}.
+     * A successful result holds a reference to the script, which is passed on by {@link Result#wrap()}.
+     * @param source The compiled script.
+     * @param consumer The compiled consumer, or null if the script failed to compile.
+     * @param diagnostics The compiler errors of the script, prefixed with "imports:line:" or "code:line:".
+     */
+    public record Result(Source source, Consumer<TriggeredCallback> consumer, List<String> diagnostics) {
+
+        public boolean isSuccess() {
+            return consumer != null;
+        }
+
+        /**
+         * Wrap the compiled consumer, so it can be passed to a trigger.
+         * @return The wrapped consumer.
+         * @throws IllegalStateException If the script failed to compile.
+         */
+        public DynamicConsumerWrapper wrap() {
+            if (consumer == null) {
+                throw new IllegalStateException("Compilation failed!\n" + String.join("\n", diagnostics));
+            }
+            return new DynamicConsumerWrapper(source.imports(), source.functionBody(), consumer);
+        }
+    }
+
+    private static Consumer<TriggeredCallback> loadOrCompile(String hash, String imports, String functionBody) throws Exception {
+        Consumer<TriggeredCallback> consumer = loadExisting(hash, imports, functionBody);
+        if (consumer != null) return consumer;
+        String className = "DynamicClass_" + hash;
+        Map<String, byte[]> classes = compile(className, imports, functionBody);
+        store(hash, classes);
+        return instantiate(PACKAGE + "." + className, classes);
+    }
+
+    // Looks for a script that does not need to be compiled, first in the precompiled classes, then in the disk cache
+    private static Consumer<TriggeredCallback> loadExisting(String hash, String imports, String functionBody) {
+        Consumer<TriggeredCallback> consumer = loadPrecompiled(imports, functionBody);
+        return consumer != null ? consumer : loadCached(hash);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<TriggeredCallback> loadPrecompiled(String imports, String functionBody) {
+        String className = precompiled().get(sourceHash(imports, functionBody));
+        if (className == null) return null;
+        try {
+            Class<?> clazz = Class.forName(className, true, RuntimeCompiler.class.getClassLoader());
+            return (Consumer<TriggeredCallback>) clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Stale manifest entry, the script is compiled at runtime instead
+            return null;
+        }
+    }
+
+    // Merges the manifests of all precompiled script jars on the classpath, only read once
+    private static Map<String, String> precompiled() {
+        Map<String, String> manifest = precompiled;
+        if (manifest != null) return manifest;
+        synchronized (RuntimeCompiler.class) {
+            if (precompiled != null) return precompiled;
+            Map<String, String> entries = new HashMap<>();
+            try {
+                Enumeration<URL> resources = RuntimeCompiler.class.getClassLoader().getResources(MANIFEST);
+                while (resources.hasMoreElements()) {
+                    Properties properties = new Properties();
+                    try (InputStream in = resources.nextElement().openStream()) {
+                        properties.load(in);
+                    }
+                    properties.forEach((key, value) -> entries.put((String) key, (String) value));
+                }
+            } catch (IOException e) {
+                // Without a readable manifest everything is compiled at runtime
+            }
+            precompiled = Map.copyOf(entries);
+            return precompiled;
+        }
+    }
+
+    private static Consumer<TriggeredCallback> loadCached(String hash) {
+        Path directory = cacheDirectory;
+        if (directory == null) return null;
+        Path entry = directory.resolve(hash);
+        if (!Files.isDirectory(entry)) return null;
+        try {
+            return instantiate(PACKAGE + ".DynamicClass_" + hash, readClasses(entry));
+        } catch (Exception e) {
+            // Corrupt entry, it is compiled again and overwritten
+            return null;
+        }
+    }
+
+    private static void store(String hash, Map<String, byte[]> classes) {
+        Path directory = cacheDirectory;
+        if (directory == null) return;
+        try {
+            writeClasses(directory.resolve(hash), classes);
+        } catch (IOException e) {
+            // The disk cache is only an optimization
+        }
+    }
+
+    // The classes belonging to one generated class, including its nested classes
+    private static Map<String, byte[]> classesOf(String fullClassName, Map<String, byte[]> classes) {
+        Map<String, byte[]> own = new HashMap<>();
+        classes.forEach((name, bytes) -> {
+            if (name.equals(fullClassName) || name.startsWith(fullClassName + "$")) own.put(name, bytes);
+        });
+        return own;
+    }
+
+    private static JavaCompiler compiler() {
         JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        JavaFileObject sourceFile = new JavaSourceFromString(fullClassName, sourceCode);
+        if (compiler == null) throw new IllegalStateException("No Java compiler available, the server must run on a JDK");
+        return compiler;
+    }
 
-        JavaFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
-        Boolean result = compiler.getTask(null, fileManager, null, null, null, List.of(sourceFile)).call();
+    private static Map<String, byte[]> readClasses(Path entry) throws IOException {
+        Map<String, byte[]> classes = new HashMap<>();
+        try (Stream<Path> files = Files.list(entry)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(".class")) continue;
+                classes.put(name.substring(0, name.length() - ".class".length()), Files.readAllBytes(file));
+            }
+        }
+        return classes;
+    }
 
-        if (!result) throw new RuntimeException("Compilation failed!");
+    private static void writeClasses(Path entry, Map<String, byte[]> classes) throws IOException {
+        // Written to a temporary directory first, so a crash never leaves a partial entry behind
+        Files.createDirectories(entry.getParent());
+        Path temporary = Files.createTempDirectory(entry.getParent(), entry.getFileName() + ".tmp");
+        try {
+            for (Map.Entry<String, byte[]> file : classes.entrySet()) {
+                Files.write(temporary.resolve(file.getKey() + ".class"), file.getValue());
+            }
+            Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try (Stream<Path> files = Files.list(temporary)) {
+                files.forEach(file -> {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ignored) {
+                    }
+                });
+            }
+            Files.deleteIfExists(temporary);
+            if (!(e instanceof FileAlreadyExistsException || e instanceof DirectoryNotEmptyException)) throw e;
+        }
+    }
 
-        // Load class
-        ClassLoader classLoader = fileManager.getClassLoader(null);
-        Class<?> clazz = classLoader.loadClass(fullClassName);
+    @SuppressWarnings("unchecked")
+    private static Consumer<TriggeredCallback> instantiate(String fullClassName, Map<String, byte[]> classes) throws Exception {
+        Class<?> clazz = define(fullClassName, classes);
         return (Consumer<TriggeredCallback>) clazz.getDeclaredConstructor().newInstance();
     }
 
+    /**
+     * Define a generated class so it can be unloaded again. A single class becomes a hidden class, which is unloaded
+     * once it is unreachable. Scripts with nested classes need to resolve them by name, so they get their own class loader.
+     */
+    private static Class<?> define(String fullClassName, Map<String, byte[]> classes) throws Exception {
+        Class<?> clazz;
+        byte[] bytes = classes.get(fullClassName);
+        if (bytes != null && classes.size() == 1) {
+            clazz = LOOKUP.defineHiddenClass(bytes, true).lookupClass();
+        } else {
+            clazz = new ByteClassLoader(classes).loadClass(fullClassName);
+        }
+        LIVE_CLASSES.incrementAndGet();
+        CLEANER.register(clazz, LIVE_CLASSES::decrementAndGet);
+        return clazz;
+    }
+
+    /**
+     * Compile a script into a new class, bypassing the caches.
+     * @param className The simple name of the generated class.
+     * @param imports The imports of the script.
+     * @param functionBody The body of the script.
+     * @return The compiled consumer.
+     * @throws Exception If the script could not be compiled.
+     */
+    public static Consumer<TriggeredCallback> compileConsumer(String className, String imports, String functionBody) throws Exception {
+        return instantiate(PACKAGE + "." + className, compile(className, imports, functionBody));
+    }
+
+    private static Map<String, byte[]> compile(String className, String imports, String functionBody) {
+        JavaSourceFromString sourceFile = JavaSourceFromString.of(className, imports, functionBody, null);
+
+        // Compile in-memory
+        JavaCompiler compiler = compiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        ClassFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
+        Boolean result = compiler.getTask(null, fileManager, diagnostics, null, null, List.of(sourceFile)).call();
+
+        if (!result) {
+            StringBuilder message = new StringBuilder("Compilation failed!");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) message.append('\n').append(sourceFile.describe(diagnostic));
+            }
+            throw new RuntimeException(message.toString());
+        }
+
+        return fileManager.getClasses();
+    }
+
     // In-memory source file
     static class JavaSourceFromString extends SimpleJavaFileObject {
         final String code;
+        final String hash;
+        final int importLines;
 
         JavaSourceFromString(String name, String code) {
+            this(name, code, null, 1);
+        }
+
+        JavaSourceFromString(String name, String code, String hash, int importLines) {
             super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
             this.code = code;
+            this.hash = hash;
+            this.importLines = importLines;
+        }
+
+        static JavaSourceFromString of(String hash, String imports, String functionBody) {
+            return of("DynamicClass_" + hash, imports, functionBody, hash);
+        }
+
+        static JavaSourceFromString of(String className, String imports, String functionBody, String hash) {
+            // Full source code string
+            String sourceCode = """
+                    package cat.TRIGGER.dynamic;
+
+                    import cat.TRIGGER.dynamic.DynamicFunction;
+                    %s
+
+                    public class %s implements DynamicFunction {
+                        @Override
+                        public void accept(Object o) {
+                            %s
+                        }
+                    }
+                    """.formatted(imports, className, functionBody);
+            return new JavaSourceFromString(PACKAGE + "." + className, sourceCode, hash, imports.split("\n", -1).length);
+        }
+
+        // Maps a diagnostic of the generated source back to the line in the imports or the code of the script
+        String describe(Diagnostic<? extends JavaFileObject> diagnostic) {
+            long line = diagnostic.getLineNumber();
+            long bodyStart = importLines + 8; // 3 template lines before the imports, 4 between the imports and the body
+            String location;
+            if (line >= 4 && line < 4 + importLines) location = "imports:" + (line - 3);
+            else if (line >= bodyStart) location = "code:" + (line - bodyStart + 1);
+            else location = "template";
+            return location + ": " + diagnostic.getMessage(Locale.ROOT);
         }
 
         public CharSequence getCharContent(boolean ignoreEncodingErrors) {
@@ -76,14 +639,29 @@ public class RuntimeCompiler {
         }
 
         public ClassLoader getClassLoader(Location location) {
-            return new ClassLoader() {
-                protected Class<?> findClass(String name) {
-                    ByteArrayJavaClass file = classFiles.get(name);
-                    if (file == null) throw new RuntimeException("Class not found: " + name);
-                    byte[] bytes = file.getBytes();
-                    return defineClass(name, bytes, 0, bytes.length);
-                }
-            };
+            return new ByteClassLoader(getClasses());
+        }
+
+        Map<String, byte[]> getClasses() {
+            Map<String, byte[]> classes = new HashMap<>();
+            classFiles.forEach((name, file) -> classes.put(name, file.getBytes()));
+            return classes;
+        }
+    }
+
+    // Defines classes from their compiled bytes
+    static class ByteClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        ByteClassLoader(Map<String, byte[]> classes) {
+            super(RuntimeCompiler.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) throw new ClassNotFoundException(name);
+            return defineClass(name, bytes, 0, bytes.length);
         }
     }
 
@@ -0,0 +1,117 @@
+package cat.TRIGGER.dynamic;
+
+import cat.TRIGGER.TriggerManager;
+import cat.TRIGGER.config.TriggerDefinition;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Compiles the callback scripts of trigger definitions ahead of time into a jar.
+ * Once that jar is on the classpath, {@link RuntimeCompiler} loads the precompiled classes instead of running javac.
+ * <p>
+ * Usage: {@code ScriptPrecompiler <output.jar> <file or directory>...}, where HOCON definitions ({@code .conf}) are read
+ * with {@link TriggerManager#load(Path)} and JSON triggers ({@code .json}, a single trigger or an array of them) in the
+ * format of {@link cat.TRIGGER.Trigger#toJSON()}.
+ */
+public final class ScriptPrecompiler {
+
+    private ScriptPrecompiler() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: ScriptPrecompiler <output.jar> <file or directory>...");
+            System.exit(2);
+        }
+
+        Map<RuntimeCompiler.Source, Path> sources = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            for (Path file : definitionFiles(Path.of(args[i]))) {
+                for (RuntimeCompiler.Source source : read(file)) {
+                    sources.putIfAbsent(source, file);
+                }
+            }
+        }
+
+        Map<String, List<String>> failures = new HashMap<>();
+        Map<String, Map<String, byte[]>> compiled = RuntimeCompiler.precompile(sources.keySet(), failures);
+        write(Path.of(args[0]), compiled);
+
+        System.out.println("Precompiled " + compiled.size() + " scripts into " + args[0]);
+        if (failures.isEmpty()) return;
+        sources.forEach((source, file) -> {
+            List<String> errors = failures.get(RuntimeCompiler.sourceHash(source.imports(), source.functionBody()));
+            if (errors == null) return;
+            System.err.println("Failed to compile a script of " + file + ":");
+            errors.forEach(error -> System.err.println("    " + error));
+        });
+        System.exit(1);
+    }
+
+    private static List<Path> definitionFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) return List.of(path);
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> file.toString().endsWith(".conf") || file.toString().endsWith(".json"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Read the scripts of a definition file.
+     * JSON is read directly instead of through {@link cat.TRIGGER.Trigger#fromJSON(String)}, which would compile the scripts.
+     */
+    private static List<RuntimeCompiler.Source> read(Path file) throws Exception {
+        List<RuntimeCompiler.Source> sources = new ArrayList<>();
+        if (file.toString().endsWith(".json")) {
+            JsonElement root;
+            try (Reader reader = Files.newBufferedReader(file)) {
+                root = JsonParser.parseReader(reader);
+            }
+            Iterable<JsonElement> triggers = root.isJsonArray() ? root.getAsJsonArray() : List.of(root);
+            for (JsonElement trigger : triggers) {
+                if (!trigger.isJsonObject() || !(trigger.getAsJsonObject().get("callback") instanceof JsonObject callback)) continue;
+                if (!callback.has("functionBody")) continue;
+                String imports = callback.has("imports") ? callback.get("imports").getAsString() : "";
+                sources.add(new RuntimeCompiler.Source(imports, callback.get("functionBody").getAsString()));
+            }
+        } else {
+            TriggerDefinition definition = TriggerManager.load(file);
+            if (definition.getCode() != null) {
+                String imports = definition.getImports() == null ? "" : definition.getImports();
+                sources.add(new RuntimeCompiler.Source(imports, definition.getCode()));
+            }
+        }
+        return sources;
+    }
+
+    private static void write(Path output, Map<String, Map<String, byte[]>> compiled) throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Properties manifest = new Properties();
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(output))) {
+            for (Map.Entry<String, Map<String, byte[]>> script : compiled.entrySet()) {
+                manifest.setProperty(script.getKey(), RuntimeCompiler.PACKAGE + "." + RuntimeCompiler.PRECOMPILED_PREFIX + script.getKey());
+                for (Map.Entry<String, byte[]> clazz : script.getValue().entrySet()) {
+                    jar.putNextEntry(new JarEntry(clazz.getKey().replace('.', '/') + ".class"));
+                    jar.write(clazz.getValue());
+                    jar.closeEntry();
+                }
+            }
+            jar.putNextEntry(new JarEntry(RuntimeCompiler.MANIFEST));
+            manifest.store((OutputStream) jar, "Precompiled cat.TRIGGER scripts, source hash to class");
+            jar.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+package cat.TRIGGER.index;
+
+import cat.TRIGGER.Trigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shared bookkeeping of {@link SpatialIndex.Edit} implementations.
+ * A removal cancels an earlier addition of the same trigger. An addition after a removal keeps both, the trigger is
+ * inserted again with its current bounding box, which is how triggers that moved or were recomputed are updated.
+ */
+abstract class IndexEdit implements SpatialIndex.Edit {
+    protected final List<Trigger> additions = new ArrayList<>();
+    protected final Set<Trigger> removals = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public SpatialIndex.Edit add(Trigger trigger) {
+        additions.add(trigger);
+        return this;
+    }
+
+    @Override
+    public SpatialIndex.Edit remove(Trigger trigger) {
+        additions.removeIf(added -> added == trigger);
+        removals.add(trigger);
+        return this;
+    }
+
+    /**
+     * Create a new identity based set of triggers.
+     * @return A new, empty identity set.
+     */
+    static Set<Trigger> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+package cat.TRIGGER.index;
+
+import cat.TRIGGER.Trigger;
+import com.jamieswhiteshirt.rtree3i.Box;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * An immutable {@link SpatialIndex} that hashes triggers into the 16x16x16 block sections they overlap, keyed by the packed section coordinates.
+ * Looking up the candidates of a player is a single hash lookup in most cases, which beats a tree for small and dense triggers like checkpoints or kill zones.
+ * Triggers that would span more than {@link SectionGrid#MAX_SECTIONS} sections are kept in a separate list that is checked on every query.
+ * Every {@link Edit} copies the section table, so many modifications should be grouped into one edit.
+ * <p>
+ * The bounding box of a trigger is stored when it is inserted, a trigger that changes its box has to be removed and added again.
+ */
+public final class SectionGrid implements SpatialIndex {
+
+    /**
+     * Sections are 16 blocks wide on every axis.
+     */
+    private static final int SECTION_SHIFT = 4;
+    /**
+     * Triggers that overlap more sections than this are not hashed.
+     */
+    private static final int MAX_SECTIONS = 64;
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final SectionGrid EMPTY = new SectionGrid(new Long2ObjectOpenHashMap<>(), NO_ENTRIES, Map.of());
+
+    private final Long2ObjectOpenHashMap<Entry[]> sections;
+    private final Entry[] large; // Triggers spanning too many sections
+    private final Map<Trigger, Box> boxes; // Identity map of every trigger to its stored box
+
+    private SectionGrid(Long2ObjectOpenHashMap<Entry[]> sections, Entry[] large, Map<Trigger, Box> boxes) {
+        this.sections = sections;
+        this.large = large;
+        this.boxes = boxes;
+    }
+
+    /**
+     * Get the empty grid.
+     * @return The empty grid.
+     */
+    public static SectionGrid empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public Edit edit() {
+        return new Edit(this);
+    }
+
+    @Override
+    public void query(Box box, Consumer<Trigger> consumer) {
+        final int minX = box.x1(), minY = box.y1(), minZ = box.z1();
+        final int maxX = box.x2(), maxY = box.y2(), maxZ = box.z2();
+        // The query box is open, so a box ending exactly on a section border does not reach into the next section
+        final int fromX = minX >> SECTION_SHIFT, toX = (maxX - 1) >> SECTION_SHIFT;
+        final int fromY = minY >> SECTION_SHIFT, toY = (maxY - 1) >> SECTION_SHIFT;
+        final int fromZ = minZ >> SECTION_SHIFT, toZ = (maxZ - 1) >> SECTION_SHIFT;
+        final boolean single = fromX == toX && fromY == toY && fromZ == toZ;
+
+        for (int sx = fromX; sx <= toX; sx++) {
+            for (int sy = fromY; sy <= toY; sy++) {
+                for (int sz = fromZ; sz <= toZ; sz++) {
+                    Entry[] entries = sections.get(key(sx, sy, sz));
+                    if (entries == null) continue;
+                    for (Entry entry : entries) {
+                        Box bounds = entry.box();
+                        if (!overlaps(bounds, minX, minY, minZ, maxX, maxY, maxZ)) continue;
+                        // A trigger in several sections is only reported from the first section it shares with the query
+                        if (!single && (sx != Math.max(fromX, bounds.x1() >> SECTION_SHIFT)
+                                || sy != Math.max(fromY, bounds.y1() >> SECTION_SHIFT)
+                                || sz != Math.max(fromZ, bounds.z1() >> SECTION_SHIFT))) continue;
+                        consumer.accept(entry.trigger());
+                    }
+                }
+            }
+        }
+        for (Entry entry : large) {
+            if (overlaps(entry.box(), minX, minY, minZ, maxX, maxY, maxZ)) {
+                consumer.accept(entry.trigger());
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<Trigger> consumer) {
+        for (Long2ObjectMap.Entry<Entry[]> section : sections.long2ObjectEntrySet()) {
+            long key = section.getLongKey();
+            for (Entry entry : section.getValue()) {
+                // Only report a trigger from its first section
+                if (key == firstSection(entry.box())) {
+                    consumer.accept(entry.trigger());
+                }
+            }
+        }
+        for (Entry entry : large) {
+            consumer.accept(entry.trigger());
+        }
+    }
+
+    @Override
+    public boolean contains(Trigger trigger) {
+        return boxes.containsKey(trigger);
+    }
+
+    @Override
+    public int size() {
+        return boxes.size();
+    }
+
+    /**
+     * Pack section coordinates into a single long, 22 bits for x and z and 20 bits for y.
+     * @param sx The section x coordinate.
+     * @param sy The section y coordinate.
+     * @param sz The section z coordinate.
+     * @return The packed section key.
+     */
+    public static long key(int sx, int sy, int sz) {
+        return ((long) sx & 0x3FFFFFL) << 42 | ((long) sz & 0x3FFFFFL) << 20 | ((long) sy & 0xFFFFFL);
+    }
+
+    private static long firstSection(Box bounds) {
+        return key(bounds.x1() >> SECTION_SHIFT, bounds.y1() >> SECTION_SHIFT, bounds.z1() >> SECTION_SHIFT);
+    }
+
+    private static boolean isLarge(Box bounds) {
+        long x = ((bounds.x2() - 1) >> SECTION_SHIFT) - (bounds.x1() >> SECTION_SHIFT) + 1;
+        long y = ((bounds.y2() - 1) >> SECTION_SHIFT) - (bounds.y1() >> SECTION_SHIFT) + 1;
+        long z = ((bounds.z2() - 1) >> SECTION_SHIFT) - (bounds.z1() >> SECTION_SHIFT) + 1;
+        return x * y * z > MAX_SECTIONS;
+    }
+
+    private static boolean overlaps(Box bounds, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return bounds.x1() < maxX && minX < bounds.x2()
+                && bounds.y1() < maxY && minY < bounds.y2()
+                && bounds.z1() < maxZ && minZ < bounds.z2();
+    }
+
+    /**
+     * A trigger together with the bounding box it had when it was inserted.
+     */
+    private record Entry(Trigger trigger, Box box) {}
+
+    /**
+     * A batch of additions and removals for a {@link SectionGrid}.
+     */
+    public static final class Edit extends IndexEdit {
+        private final SectionGrid base;
+
+        private Edit(SectionGrid base) {
+            this.base = base;
+        }
+
+        @Override
+        public SectionGrid apply() {
+            Set<Trigger> removed = identitySet();
+            for (Trigger trigger : removals) {
+                if (base.contains(trigger)) removed.add(trigger);
+            }
+            // Triggers that are already contained are not added twice, unless they were removed first to be inserted again
+            Set<Trigger> added = identitySet();
+            for (Trigger trigger : additions) {
+                if (removed.contains(trigger) || !base.contains(trigger)) added.add(trigger);
+            }
+            if (removed.isEmpty() && added.isEmpty()) {
+                return base;
+            }
+            if (removed.size() == base.size() && added.isEmpty()) return EMPTY;
+
+            Long2ObjectOpenHashMap<Entry[]> sections = new Long2ObjectOpenHashMap<>(base.sections);
+            List<Entry> large = new ArrayList<>(List.of(base.large));
+            Map<Trigger, Box> boxes = new IdentityHashMap<>(base.boxes);
+
+            for (Trigger trigger : removed) {
+                // Remove by the box stored at insertion, the current box may differ
+                Box bounds = boxes.remove(trigger);
+                if (isLarge(bounds)) {
+                    large.removeIf(entry -> entry.trigger() == trigger);
+                    continue;
+                }
+                forEachSection(bounds, key -> {
+                    Entry[] current = sections.get(key);
+                    if (current == null) return;
+                    int index = indexOf(current, trigger);
+                    if (index < 0) return;
+                    if (current.length == 1) {
+                        sections.remove(key);
+                        return;
+                    }
+                    Entry[] next = new Entry[current.length - 1];
+                    System.arraycopy(current, 0, next, 0, index);
+                    System.arraycopy(current, index + 1, next, index, next.length - index);
+                    sections.put(key, next);
+                });
+            }
+
+            for (Trigger trigger : added) {
+                Entry entry = new Entry(trigger, trigger.getBoundingBox());
+                boxes.put(trigger, entry.box());
+                if (isLarge(entry.box())) {
+                    large.add(entry);
+                    continue;
+                }
+                forEachSection(entry.box(), key -> {
+                    Entry[] current = sections.get(key);
+                    if (current == null) {
+                        sections.put(key, new Entry[]{entry});
+                        return;
+                    }
+                    Entry[] next = new Entry[current.length + 1];
+                    System.arraycopy(current, 0, next, 0, current.length);
+                    next[current.length] = entry;
+                    sections.put(key, next);
+                });
+            }
+            return new SectionGrid(sections, large.toArray(NO_ENTRIES), Collections.unmodifiableMap(boxes));
+        }
+
+        private static int indexOf(Entry[] entries, Trigger trigger) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].trigger() == trigger) return i;
+            }
+            return -1;
+        }
+
+        private static void forEachSection(Box bounds, LongConsumer consumer) {
+            for (int sx = bounds.x1() >> SECTION_SHIFT; sx <= (bounds.x2() - 1) >> SECTION_SHIFT; sx++) {
+                for (int sy = bounds.y1() >> SECTION_SHIFT; sy <= (bounds.y2() - 1) >> SECTION_SHIFT; sy++) {
+                    for (int sz = bounds.z1() >> SECTION_SHIFT; sz <= (bounds.z2() - 1) >> SECTION_SHIFT; sz++) {
+                        consumer.accept(key(sx, sy, sz));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+package cat.TRIGGER.index;
+
+import cat.TRIGGER.Trigger;
+import com.jamieswhiteshirt.rtree3i.Box;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * The broadphase of the collision detection, finds the triggers whose {@link Trigger#getBoundingBox() bounding box} overlaps a query box.
+ * Implementations are immutable: every {@link Edit} returns a new index, so a published index can be queried from any thread without locking.
+ * Triggers are compared by identity, and their bounding box must not change while they are contained.
+ * <p>
+ * Available implementations are {@link TriggerTree} (STR-packed R-tree, good for large or sparse triggers)
+ * and {@link SectionGrid} (hash of 16x16x16 sections, good for small and dense triggers).
+ */
+public interface SpatialIndex {
+
+    /**
+     * Pass every trigger whose bounding box overlaps the query box to the consumer, every trigger at most once.
+     * Boxes that only touch each other do not overlap, same as {@link Box#intersectsOpen(Box)}.
+     * @param box The query box.
+     * @param consumer The consumer of the matching triggers.
+     */
+    void query(Box box, Consumer<Trigger> consumer);
+
+    /**
+     * Iterate over all triggers of this index.
+     * @param consumer The consumer.
+     */
+    void forEach(Consumer<Trigger> consumer);
+
+    /**
+     * Check if this index contains a trigger, compared by identity.
+     * @param trigger The trigger to look for.
+     * @return true if the trigger is contained, false if not.
+     */
+    boolean contains(Trigger trigger);
+
+    /**
+     * Get the amount of triggers in this index.
+     * @return The amount of triggers in this index.
+     */
+    int size();
+
+    /**
+     * Get if this index contains no triggers.
+     * @return true if this index is empty, false if not.
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Start a batch of additions and removals that is applied at once by {@link Edit#apply()}.
+     * @return A new {@link Edit} based on this index.
+     */
+    Edit edit();
+
+    /**
+     * A batch of additions and removals for a {@link SpatialIndex}.
+     * Nothing is changed until {@link Edit#apply()} is called, which returns the new index.
+     * Adding an already contained trigger does nothing, unless it was removed earlier in the same edit.
+     * Removing and adding a trigger again re-inserts it with its current {@link Trigger#getBoundingBox() bounding box}. Not thread safe.
+     */
+    interface Edit {
+
+        /**
+         * Add a trigger. After a removal of the same trigger in this edit, the trigger is inserted again with its current bounding box.
+         * @param trigger The trigger to add.
+         * @return This edit.
+         */
+        Edit add(Trigger trigger);
+
+        /**
+         * Remove a trigger, cancels an earlier addition of the same trigger in this edit.
+         * @param trigger The trigger to remove.
+         * @return This edit.
+         */
+        Edit remove(Trigger trigger);
+
+        /**
+         * Add many triggers.
+         * @param triggers The triggers to add.
+         * @return This edit.
+         */
+        default Edit addAll(Collection<Trigger> triggers) {
+            triggers.forEach(this::add);
+            return this;
+        }
+
+        /**
+         * Build the new index.
+         * @return The new index, or the base index if nothing changed.
+         */
+        SpatialIndex apply();
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER.index;
+
+import cat.TRIGGER.Trigger;
+import com.jamieswhiteshirt.rtree3i.Box;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable R-tree of triggers keyed by their {@link Trigger#getBoundingBox() bounding box}.
+ * The tree is bulk loaded with Sort-Tile-Recursive (STR) packing, which gives fully packed nodes and a minimal depth.
+ * Small changes are kept in a short unpacked delta (additions and removals) on top of the packed tree,
+ * once the delta grows too large the whole tree is packed again.
+ * Every modification returns a new tree, so a published tree can be queried from any thread without locking.
+ * Many modifications should be grouped with {@link TriggerTree#edit()} so the tree is only rebuilt and published once.
+ * <p>
+ * The bounding box of a trigger is stored when it is inserted, a trigger that changes its box has to be removed and added again.
+ */
+public final class TriggerTree implements SpatialIndex {
+
+    /**
+     * Maximum amount of entries or children of a node.
+     */
+    private static final int NODE_CAPACITY = 16;
+    /**
+     * Minimum size of the unpacked delta before the tree is packed again.
+     */
+    private static final int MIN_DELTA = 32;
+    /**
+     * Maximum size of the unpacked delta before the tree is packed again.
+     */
+    private static final int MAX_DELTA = 256;
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final TriggerTree EMPTY = new TriggerTree(null, Map.of(), NO_ENTRIES, Set.of(), 0);
+
+    private final Node root; // Packed part, null if empty
+    private final Map<Trigger, Box> packed; // Identity map of every packed trigger to its stored box, shared by all trees with the same root
+    private final Entry[] pending; // Additions since the last packing
+    private final Set<Trigger> removed; // Packed triggers that were removed since the last packing
+    private final int size;
+
+    private TriggerTree(Node root, Map<Trigger, Box> packed, Entry[] pending, Set<Trigger> removed, int size) {
+        this.root = root;
+        this.packed = packed;
+        this.pending = pending;
+        this.removed = removed;
+        this.size = size;
+    }
+
+    /**
+     * Get the empty tree.
+     * @return The empty tree.
+     */
+    public static TriggerTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Bulk load a new tree from a collection of triggers.
+     * @param triggers The triggers to pack, each trigger may only be contained once.
+     * @return The new packed tree.
+     */
+    public static TriggerTree pack(Collection<Trigger> triggers) {
+        List<Entry> entries = new ArrayList<>(triggers.size());
+        for (Trigger trigger : triggers) {
+            entries.add(new Entry(trigger, trigger.getBoundingBox()));
+        }
+        return packEntries(entries);
+    }
+
+    private static TriggerTree packEntries(List<Entry> entries) {
+        if (entries.isEmpty()) return EMPTY;
+        Map<Trigger, Box> packed = new IdentityHashMap<>(entries.size() * 2);
+        for (Entry entry : entries) {
+            packed.put(entry.trigger(), entry.box());
+        }
+        return new TriggerTree(Node.pack(entries), Collections.unmodifiableMap(packed), NO_ENTRIES, Set.of(), entries.size());
+    }
+
+    @Override
+    public Edit edit() {
+        return new Edit(this);
+    }
+
+    /**
+     * Add a single trigger. Prefer {@link TriggerTree#edit()} or {@link TriggerTree#pack(Collection)} for many triggers.
+     * @param trigger The trigger to add.
+     * @return The new tree.
+     */
+    public TriggerTree add(Trigger trigger) {
+        return (TriggerTree) edit().add(trigger).apply();
+    }
+
+    /**
+     * Remove a single trigger. Prefer {@link TriggerTree#edit()} for many triggers.
+     * @param trigger The trigger to remove.
+     * @return The new tree, or this tree if the trigger is not contained.
+     */
+    public TriggerTree remove(Trigger trigger) {
+        return (TriggerTree) edit().remove(trigger).apply();
+    }
+
+    @Override
+    public boolean contains(Trigger trigger) {
+        for (Entry entry : pending) {
+            if (entry.trigger() == trigger) return true;
+        }
+        return packed.containsKey(trigger) && !removed.contains(trigger);
+    }
+
+    @Override
+    public void query(Box box, Consumer<Trigger> consumer) {
+        final int minX = box.x1(), minY = box.y1(), minZ = box.z1();
+        final int maxX = box.x2(), maxY = box.y2(), maxZ = box.z2();
+        if (root != null) {
+            root.query(minX, minY, minZ, maxX, maxY, maxZ, removed, consumer);
+        }
+        for (Entry entry : pending) {
+            Box bounds = entry.box();
+            if (overlaps(bounds.x1(), bounds.y1(), bounds.z1(), bounds.x2(), bounds.y2(), bounds.z2(), minX, minY, minZ, maxX, maxY, maxZ)) {
+                consumer.accept(entry.trigger());
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<Trigger> consumer) {
+        if (root != null) {
+            root.forEach(removed, entry -> consumer.accept(entry.trigger()));
+        }
+        for (Entry entry : pending) {
+            consumer.accept(entry.trigger());
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the depth of the packed part of this tree.
+     * @return The amount of node levels, zero if nothing is packed.
+     */
+    public int depth() {
+        int depth = 0;
+        for (Node node = root; node != null; node = node.children == null ? null : node.children[0]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static boolean overlaps(int aMinX, int aMinY, int aMinZ, int aMaxX, int aMaxY, int aMaxZ,
+                                    int bMinX, int bMinY, int bMinZ, int bMaxX, int bMaxY, int bMaxZ) {
+        return aMinX < bMaxX && bMinX < aMaxX
+                && aMinY < bMaxY && bMinY < aMaxY
+                && aMinZ < bMaxZ && bMinZ < aMaxZ;
+    }
+
+    /**
+     * A trigger together with the bounding box it had when it was inserted.
+     */
+    private record Entry(Trigger trigger, Box box) {}
+
+    /**
+     * A batch of additions and removals for a {@link TriggerTree}.
+     */
+    public static final class Edit extends IndexEdit {
+        private final TriggerTree base;
+
+        private Edit(TriggerTree base) {
+            this.base = base;
+        }
+
+        /**
+         * Build the new tree. The delta is folded into a freshly packed tree if it grows too large.
+         * @return The new tree, or the base tree if nothing changed.
+         */
+        @Override
+        public TriggerTree apply() {
+            // Only removals of contained triggers count
+            Set<Trigger> remaining = identitySet();
+            remaining.addAll(removals);
+            Set<Trigger> removedPacked = identitySet();
+            List<Entry> pending = new ArrayList<>(base.pending.length + additions.size());
+            for (Entry entry : base.pending) {
+                if (!remaining.remove(entry.trigger())) pending.add(entry);
+            }
+            int removedPending = base.pending.length - pending.size();
+            for (Trigger trigger : remaining) {
+                if (base.packed.containsKey(trigger) && !base.removed.contains(trigger)) {
+                    removedPacked.add(trigger);
+                }
+            }
+            // Triggers that are already contained are not added twice, unless they were removed first to be inserted again
+            Set<Trigger> added = identitySet();
+            for (Trigger trigger : additions) {
+                if ((removals.contains(trigger) || !base.contains(trigger)) && added.add(trigger)) {
+                    pending.add(new Entry(trigger, trigger.getBoundingBox()));
+                }
+            }
+            if (added.isEmpty() && removedPending == 0 && removedPacked.isEmpty()) {
+                return base;
+            }
+
+            int size = base.size - removedPending - removedPacked.size() + added.size();
+            if (size == 0) return EMPTY;
+
+            int delta = pending.size() + base.removed.size() + removedPacked.size();
+            int maxDelta = Math.min(MAX_DELTA, Math.max(MIN_DELTA, (int) Math.sqrt(size)));
+            if (delta > maxDelta) {
+                List<Entry> all = new ArrayList<>(size);
+                if (base.root != null) {
+                    base.root.forEach(base.removed, entry -> {
+                        if (!removedPacked.contains(entry.trigger())) all.add(entry);
+                    });
+                }
+                all.addAll(pending);
+                return packEntries(all);
+            }
+
+            Set<Trigger> removed = base.removed;
+            if (!removedPacked.isEmpty()) {
+                removedPacked.addAll(base.removed);
+                removed = removedPacked;
+            }
+            return new TriggerTree(base.root, base.packed, pending.toArray(NO_ENTRIES), removed, size);
+        }
+    }
+
+    /**
+     * A packed node. Leaves hold triggers, inner nodes hold child nodes.
+     */
+    private static final class Node {
+        private final int minX, minY, minZ, maxX, maxY, maxZ;
+        private final Node[] children; // null for leaves
+        private final Entry[] entries; // null for inner nodes
+
+        private Node(Node[] children, Entry[] entries) {
+            this.children = children;
+            this.entries = entries;
+
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+            if (children != null) {
+                for (Node child : children) {
+                    minX = Math.min(minX, child.minX);
+                    minY = Math.min(minY, child.minY);
+                    minZ = Math.min(minZ, child.minZ);
+                    maxX = Math.max(maxX, child.maxX);
+                    maxY = Math.max(maxY, child.maxY);
+                    maxZ = Math.max(maxZ, child.maxZ);
+                }
+            } else {
+                for (Entry entry : entries) {
+                    Box box = entry.box();
+                    minX = Math.min(minX, box.x1());
+                    minY = Math.min(minY, box.y1());
+                    minZ = Math.min(minZ, box.z1());
+                    maxX = Math.max(maxX, box.x2());
+                    maxY = Math.max(maxY, box.y2());
+                    maxZ = Math.max(maxZ, box.z2());
+                }
+            }
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        /**
+         * Build the packed levels bottom up, until a single root node remains.
+         */
+        static Node pack(List<Entry> entries) {
+            List<Node> level = new ArrayList<>();
+            for (List<Entry> group : tile(new ArrayList<>(entries), TriggerTree::centerX2, TriggerTree::centerY2, TriggerTree::centerZ2)) {
+                level.add(new Node(null, group.toArray(NO_ENTRIES)));
+            }
+            while (level.size() > 1) {
+                List<Node> parents = new ArrayList<>();
+                for (List<Node> group : tile(level, n -> n.minX + n.maxX, n -> n.minY + n.maxY, n -> n.minZ + n.maxZ)) {
+                    parents.add(new Node(group.toArray(new Node[0]), null));
+                }
+                level = parents;
+            }
+            return level.get(0);
+        }
+
+        /**
+         * Sort-Tile-Recursive: split the items into x slabs, every slab into y slices and every slice into z runs of {@link TriggerTree#NODE_CAPACITY}.
+         */
+        private static <T> List<List<T>> tile(List<T> items, ToIntFunction<T> x, ToIntFunction<T> y, ToIntFunction<T> z) {
+            int pages = (items.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int slices = (int) Math.ceil(Math.cbrt(pages));
+            int slabSize = NODE_CAPACITY * slices * slices;
+            int sliceSize = NODE_CAPACITY * slices;
+
+            List<List<T>> groups = new ArrayList<>(pages);
+            items.sort(Comparator.comparingInt(x));
+            for (int slabStart = 0; slabStart < items.size(); slabStart += slabSize) {
+                List<T> slab = items.subList(slabStart, Math.min(items.size(), slabStart + slabSize));
+                slab.sort(Comparator.comparingInt(y));
+                for (int sliceStart = 0; sliceStart < slab.size(); sliceStart += sliceSize) {
+                    List<T> slice = slab.subList(sliceStart, Math.min(slab.size(), sliceStart + sliceSize));
+                    slice.sort(Comparator.comparingInt(z));
+                    for (int start = 0; start < slice.size(); start += NODE_CAPACITY) {
+                        groups.add(new ArrayList<>(slice.subList(start, Math.min(slice.size(), start + NODE_CAPACITY))));
+                    }
+                }
+            }
+            return groups;
+        }
+
+        void query(int qMinX, int qMinY, int qMinZ, int qMaxX, int qMaxY, int qMaxZ, Set<Trigger> removed, Consumer<Trigger> consumer) {
+            if (children != null) {
+                for (Node child : children) {
+                    if (overlaps(child.minX, child.minY, child.minZ, child.maxX, child.maxY, child.maxZ, qMinX, qMinY, qMinZ, qMaxX, qMaxY, qMaxZ)) {
+                        child.query(qMinX, qMinY, qMinZ, qMaxX, qMaxY, qMaxZ, removed, consumer);
+                    }
+                }
+                return;
+            }
+            for (Entry entry : entries) {
+                Box box = entry.box();
+                if (overlaps(box.x1(), box.y1(), box.z1(), box.x2(), box.y2(), box.z2(), qMinX, qMinY, qMinZ, qMaxX, qMaxY, qMaxZ)
+                        && (removed.isEmpty() || !removed.contains(entry.trigger()))) {
+                    consumer.accept(entry.trigger());
+                }
+            }
+        }
+
+        void forEach(Set<Trigger> removed, Consumer<Entry> consumer) {
+            if (children != null) {
+                for (Node child : children) {
+                    child.forEach(removed, consumer);
+                }
+                return;
+            }
+            for (Entry entry : entries) {
+                if (removed.isEmpty() || !removed.contains(entry.trigger())) consumer.accept(entry);
+            }
+        }
+    }
+
+    // Doubled box centers, avoids rounding while sorting
+    private static int centerX2(Entry entry) {
+        return entry.box().x1() + entry.box().x2();
+    }
+
+    private static int centerY2(Entry entry) {
+        return entry.box().y1() + entry.box().y2();
+    }
+
+    private static int centerZ2(Entry entry) {
+        return entry.box().z1() + entry.box().z2();
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.minestom.server.collision.BoundingBox;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the collision tests of {@link Trigger} against shapes whose exact answer is known in closed form.
+ */
+class TriggerTest {
+
+    private static final long SEED = 42;
+    private static final int SAMPLES = 5000;
+
+    @Test
+    void pointInCubeMatchesBounds() {
+        Trigger cube = cube(new Vec(10, 64, -5), 4);
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = 10 + (random.nextDouble() - 0.5) * 8;
+            double y = 64 + (random.nextDouble() - 0.5) * 8;
+            double z = -5 + (random.nextDouble() - 0.5) * 8;
+            boolean expected = Math.abs(x - 10) <= 2 && Math.abs(y - 64) <= 2 && Math.abs(z + 5) <= 2;
+            assertEquals(expected, cube.contains(x, y, z), "Point " + x + " " + y + " " + z);
+        }
+    }
+
+    @Test
+    void pointInTetrahedronMatchesHalfSpaces() {
+        Trigger tetrahedron = tetrahedron(Vec.ZERO);
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = random.nextDouble() * 8 - 1, y = random.nextDouble() * 8 - 1, z = random.nextDouble() * 8 - 1;
+            boolean expected = x >= 0 && y >= 0 && z >= 0 && x + y + z <= TETRAHEDRON_SIZE;
+            assertEquals(expected, tetrahedron.contains(x, y, z), "Point " + x + " " + y + " " + z);
+        }
+    }
+
+    @Test
+    void pointContainmentFollowsThePosition() {
+        Trigger cube = cube(Vec.ZERO, 2);
+        assertTrue(cube.contains(0.5, 0.5, 0.5));
+
+        cube.setPosition(new Pos(100, 0, 0));
+
+        assertFalse(cube.contains(0.5, 0.5, 0.5));
+        assertTrue(cube.contains(100.5, 0.5, 0.5));
+    }
+
+    @Test
+    void pointSetUsesTheSlantedFace() {
+        Trigger tetrahedron = tetrahedron(Vec.ZERO);
+        // Inside the bounds of the tetrahedron, but entirely beyond its slanted face
+        assertFalse(tetrahedron.contains(corners(2.5, 2.5, 2.5, 3.5, 3.5, 3.5)));
+        // Straddling the slanted face
+        assertTrue(tetrahedron.contains(corners(1.5, 1.5, 1.5, 2.5, 2.5, 2.5)));
+        // Around the whole tetrahedron
+        assertTrue(tetrahedron.contains(corners(-1, -1, -1, 7, 7, 7)));
+        assertFalse(tetrahedron.contains(corners(-3, -3, -3, -1, -1, -1)));
+    }
+
+    @Test
+    void boxAgainstCubeMatchesBounds() {
+        Trigger cube = cube(new Vec(10, 64, -5), 4);
+        BoundingBox player = new BoundingBox(0.6, 1.8, 0.6);
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = 10 + (random.nextDouble() - 0.5) * 8;
+            double y = 62 + (random.nextDouble() - 0.5) * 8;
+            double z = -5 + (random.nextDouble() - 0.5) * 8;
+            boolean expected = Math.abs(x - 10) <= 2.3 && y <= 66 && y + 1.8 >= 62 && Math.abs(z + 5) <= 2.3;
+            assertEquals(expected, cube.contains(player, x, y, z), "Box at " + x + " " + y + " " + z);
+        }
+    }
+
+    @Test
+    void boxAgainstTetrahedronIsExact() {
+        Trigger tetrahedron = tetrahedron(Vec.ZERO);
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            BoundingBox box = randomBox(random);
+            double x = random.nextDouble() * 10 - 2, y = random.nextDouble() * 10 - 2, z = random.nextDouble() * 10 - 2;
+            // The box reaches into the octant and its point closest to the origin lies below the slanted face
+            double minX = x + box.minX(), minY = y + box.minY(), minZ = z + box.minZ();
+            boolean expected = x + box.maxX() >= 0 && y + box.maxY() >= 0 && z + box.maxZ() >= 0
+                    && Math.max(minX, 0) + Math.max(minY, 0) + Math.max(minZ, 0) <= TETRAHEDRON_SIZE;
+            assertEquals(expected, tetrahedron.contains(box, x, y, z), "Box " + box + " at " + x + " " + y + " " + z);
+        }
+    }
+
+    @Test
+    void boxAgainstOctahedronIsExact() {
+        // Every edge of the octahedron is diagonal, so the edge x box axis cross products decide many of these cases
+        Trigger octahedron = octahedron(Vec.ZERO);
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            BoundingBox box = randomBox(random);
+            double x = random.nextDouble() * 10 - 5, y = random.nextDouble() * 10 - 5, z = random.nextDouble() * 10 - 5;
+            double distance = closestToZero(x + box.minX(), x + box.maxX())
+                    + closestToZero(y + box.minY(), y + box.maxY())
+                    + closestToZero(z + box.minZ(), z + box.maxZ());
+            assertEquals(distance <= OCTAHEDRON_RADIUS, octahedron.contains(box, x, y, z), "Box " + box + " at " + x + " " + y + " " + z);
+        }
+    }
+
+    @Test
+    void boxCrossingOnlyEdgesIntersects() {
+        Trigger octahedron = octahedron(Vec.ZERO);
+        // A long thin rod through the center, no vertex of either shape lies inside the other
+        BoundingBox rod = new BoundingBox(20, 0.2, 0.2);
+        assertTrue(octahedron.contains(rod, 0, 0.1, 0.1));
+        // Only separated by the cross product of the rod and the edge between (0, r, 0) and (0, 0, r)
+        assertFalse(octahedron.contains(rod, 0, 1.6, 1.7));
+    }
+
+    @Test
+    void sweptCatchesCrossedWall() {
+        Trigger wall = trigger(corners(0, 0, 0, 0.5, 4, 4), Vec.ZERO);
+        BoundingBox player = new BoundingBox(0.6, 1.8, 0.6);
+        assertFalse(wall.contains(player, -3, 1, 2));
+        assertFalse(wall.contains(player, 3, 1, 2));
+
+        assertTrue(wall.intersectsSwept(player, -3, 1, 2, 3, 1, 2));
+        assertTrue(wall.intersectsSwept(player, 3, 1, 2, -3, 1, 2));
+        assertFalse(wall.intersectsSwept(player, -3, 1, 10, 3, 1, 10));
+        assertFalse(wall.intersectsSwept(player, -3, 1, 2, -1, 1, 2));
+    }
+
+    @Test
+    void sweptWithoutMovementMatchesContains() {
+        Trigger octahedron = octahedron(Vec.ZERO);
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            BoundingBox box = randomBox(random);
+            double x = random.nextDouble() * 10 - 5, y = random.nextDouble() * 10 - 5, z = random.nextDouble() * 10 - 5;
+            assertEquals(octahedron.contains(box, x, y, z), octahedron.intersectsSwept(box, x, y, z, x, y, z));
+        }
+    }
+
+    @Test
+    void sweptCatchesEverySampledHit() {
+        Trigger octahedron = octahedron(Vec.ZERO);
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES / 10; i++) {
+            BoundingBox box = randomBox(random);
+            double fromX = random.nextDouble() * 16 - 8, fromY = random.nextDouble() * 16 - 8, fromZ = random.nextDouble() * 16 - 8;
+            double toX = random.nextDouble() * 16 - 8, toY = random.nextDouble() * 16 - 8, toZ = random.nextDouble() * 16 - 8;
+            boolean sampled = false;
+            for (int step = 0; step <= 256 && !sampled; step++) {
+                double t = step / 256.0;
+                sampled = octahedron.contains(box, fromX + (toX - fromX) * t, fromY + (toY - fromY) * t, fromZ + (toZ - fromZ) * t);
+            }
+            if (sampled) {
+                assertTrue(octahedron.intersectsSwept(box, fromX, fromY, fromZ, toX, toY, toZ),
+                        "Missed the crossing from " + fromX + " " + fromY + " " + fromZ + " to " + toX + " " + toY + " " + toZ);
+            }
+        }
+    }
+
+    @Test
+    void sweptPastACornerIsNotACrossing() {
+        Trigger cube = trigger(corners(0, 0, 0, 4, 4, 4), Vec.ZERO);
+        BoundingBox player = new BoundingBox(0.6, 1.8, 0.6);
+        // Diagonally past the corner at x = z = 0, the swept bounds overlap the cube but the hitbox stays 0.28 blocks away
+        assertFalse(cube.intersectsSwept(player, -3, 1, 2, 2, 1, -3));
+        // The same move shifted towards the cube clips the corner
+        assertTrue(cube.intersectsSwept(player, -2.5, 1, 2.5, 2.5, 1, -2.5));
+    }
+
+    @Test
+    void sweptIsExact() {
+        Trigger octahedron = octahedron(Vec.ZERO);
+        Random random = new Random(SEED);
+        for (int i = 0; i < SAMPLES / 10; i++) {
+            BoundingBox box = randomBox(random);
+            double fromX = random.nextDouble() * 16 - 8, fromY = random.nextDouble() * 16 - 8, fromZ = random.nextDouble() * 16 - 8;
+            double toX = random.nextDouble() * 16 - 8, toY = random.nextDouble() * 16 - 8, toZ = random.nextDouble() * 16 - 8;
+            // The minimum of the convex distance function along the move, found by ternary search
+            double low = 0, high = 1;
+            for (int step = 0; step < 100; step++) {
+                double a = low + (high - low) / 3, b = high - (high - low) / 3;
+                if (distance(box, fromX, fromY, fromZ, toX, toY, toZ, a) <= distance(box, fromX, fromY, fromZ, toX, toY, toZ, b)) high = b;
+                else low = a;
+            }
+            double closest = distance(box, fromX, fromY, fromZ, toX, toY, toZ, low);
+            if (Math.abs(closest - OCTAHEDRON_RADIUS) < 1e-6) continue;
+            assertEquals(closest <= OCTAHEDRON_RADIUS, octahedron.intersectsSwept(box, fromX, fromY, fromZ, toX, toY, toZ),
+                    "Move from " + fromX + " " + fromY + " " + fromZ + " to " + toX + " " + toY + " " + toZ);
+        }
+    }
+
+    /**
+     * The octahedron distance of a box placed at a fraction of a move, at most {@link TriggerTest#OCTAHEDRON_RADIUS} if they intersect.
+     */
+    private static double distance(BoundingBox box, double fromX, double fromY, double fromZ, double toX, double toY, double toZ, double t) {
+        double x = fromX + (toX - fromX) * t, y = fromY + (toY - fromY) * t, z = fromZ + (toZ - fromZ) * t;
+        return closestToZero(x + box.minX(), x + box.maxX())
+                + closestToZero(y + box.minY(), y + box.maxY())
+                + closestToZero(z + box.minZ(), z + box.maxZ());
+    }
+
+    /**
+     * The distance of the closest value of an interval to 0.
+     */
+    private static double closestToZero(double min, double max) {
+        if (min <= 0 && max >= 0) return 0;
+        return Math.min(Math.abs(min), Math.abs(max));
+    }
+
+    private static BoundingBox randomBox(Random random) {
+        return new BoundingBox(0.2 + random.nextDouble() * 3, 0.2 + random.nextDouble() * 3, 0.2 + random.nextDouble() * 3);
+    }
+
+    private static List<Vec> corners(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        List<Vec> corners = new ArrayList<>(8);
+        for (int corner = 0; corner < 8; corner++) {
+            corners.add(new Vec((corner & 1) == 0 ? minX : maxX, (corner & 2) == 0 ? minY : maxY, (corner & 4) == 0 ? minZ : maxZ));
+        }
+        return corners;
+    }
+
+    private static final double TETRAHEDRON_SIZE = 6;
+
+    /**
+     * The corner of the positive octant cut off by the plane x + y + z = {@link TriggerTest#TETRAHEDRON_SIZE}.
+     */
+    private static Trigger tetrahedron(Vec position) {
+        return trigger(List.of(Vec.ZERO, new Vec(TETRAHEDRON_SIZE, 0, 0), new Vec(0, TETRAHEDRON_SIZE, 0), new Vec(0, 0, TETRAHEDRON_SIZE)), position);
+    }
+
+    private static final double OCTAHEDRON_RADIUS = 3;
+
+    /**
+     * All points whose coordinates add up to at most {@link TriggerTest#OCTAHEDRON_RADIUS} in absolute value.
+     */
+    private static Trigger octahedron(Vec position) {
+        double r = OCTAHEDRON_RADIUS;
+        return trigger(List.of(new Vec(r, 0, 0), new Vec(-r, 0, 0), new Vec(0, r, 0), new Vec(0, -r, 0), new Vec(0, 0, r), new Vec(0, 0, -r)), position);
+    }
+
+    private static Trigger cube(Vec position, double size) {
+        double half = size / 2;
+        return trigger(corners(-half, -half, -half, half, half, half), position);
+    }
+
+    private static Trigger trigger(List<Vec> anchors, Vec position) {
+        return new Trigger(new ArrayList<>(anchors), position, UUID.randomUUID(), Component.text("test"), NamedTextColor.RED, null);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package cat.TRIGGER.config;
+
+import cat.TRIGGER.Trigger;
+import cat.TRIGGER.TriggeredCallback;
+import cat.TRIGGER.dynamic.DynamicConsumerWrapper;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextColor;
+import net.minestom.server.coordinate.Vec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips of the binary {@link TriggerStore} and the JSON {@link TriggerStreams}.
+ */
+class TriggerStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storeRoundTrip() throws IOException {
+        List<Trigger> triggers = triggers();
+        triggers.add(trigger("no callback", new Vec(-3, 70, 12), null));
+        Path path = directory.resolve("triggers.bin");
+
+        TriggerStore.write(path, triggers);
+        List<Trigger> read = TriggerStore.read(path);
+
+        assertEquals(triggers.size(), read.size());
+        for (int i = 0; i < triggers.size(); i++) {
+            Trigger expected = triggers.get(i), actual = read.get(i);
+            assertEquals(expected.getUuid(), actual.getUuid());
+            assertEquals(TextColor.color(expected.getColor()), TextColor.color(actual.getColor()));
+            assertEqualTriggers(expected, actual);
+        }
+    }
+
+    @Test
+    void storeReplacesExistingFile() throws IOException {
+        Path path = directory.resolve("triggers.bin");
+        TriggerStore.write(path, triggers());
+        List<Trigger> smaller = triggers().subList(0, 1);
+
+        TriggerStore.write(path, smaller);
+
+        assertEquals(1, TriggerStore.read(path).size());
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(path), files.toList(), "Temporary files are left behind");
+        }
+    }
+
+    @Test
+    void storeRejectsOtherFiles() throws IOException {
+        Path path = directory.resolve("other.bin");
+        Files.writeString(path, "not a trigger store");
+
+        assertThrows(IOException.class, () -> TriggerStore.read(path));
+    }
+
+    @Test
+    void storeRejectsCorruptLengths() throws IOException {
+        Path path = directory.resolve("triggers.bin");
+        TriggerStore.write(path, triggers());
+        byte[] bytes = Files.readAllBytes(path);
+        // The string count follows the magic and the version
+        ByteBuffer.wrap(bytes).putInt(2 * Integer.BYTES, Integer.MAX_VALUE);
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> TriggerStore.read(path));
+    }
+
+    @Test
+    void streamsRoundTripJsonArray() throws IOException {
+        assertStreamsRoundTrip(directory.resolve("triggers.json"));
+    }
+
+    @Test
+    void streamsRoundTripNdjson() throws IOException {
+        assertStreamsRoundTrip(directory.resolve("triggers.ndjson"));
+    }
+
+    private static void assertStreamsRoundTrip(Path path) throws IOException {
+        List<Trigger> triggers = triggers();
+
+        TriggerStreams.write(path, triggers);
+        List<Trigger> read = new ArrayList<>();
+        int count = TriggerStreams.read(path, read::add);
+
+        assertEquals(triggers.size(), count);
+        assertEquals(triggers.size(), read.size());
+        for (int i = 0; i < triggers.size(); i++) {
+            assertEqualTriggers(triggers.get(i), read.get(i));
+        }
+    }
+
+    private static void assertEqualTriggers(Trigger expected, Trigger actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getPosition(), actual.getPosition());
+        assertEquals(expected.getAnchors(), actual.getAnchors());
+        assertEquals(expected.getSubscriptions(), actual.getSubscriptions());
+        assertEquals(expected.getTickInterval(), actual.getTickInterval());
+
+        DynamicConsumerWrapper expectedCallback = expected.getTriggeredCallback(), actualCallback = actual.getTriggeredCallback();
+        if (expectedCallback == null) {
+            assertNull(actualCallback);
+            return;
+        }
+        assertNotNull(actualCallback);
+        assertEquals(expectedCallback.getActions(), actualCallback.getActions());
+        assertEquals(expectedCallback.getImports(), actualCallback.getImports());
+        assertEquals(expectedCallback.getFunctionBody(), actualCallback.getFunctionBody());
+    }
+
+    /**
+     * Triggers with declarative actions, which are compiled without the Java compiler.
+     */
+    private static List<Trigger> triggers() {
+        List<Trigger> triggers = new ArrayList<>();
+        Trigger checkpoint = trigger("checkpoint", new Vec(10, 64, -20), DynamicConsumerWrapper.ofActions(List.of("message <green>Checkpoint reached")));
+        checkpoint.setSubscriptions(EnumSet.of(TriggeredCallback.Type.ENTERED));
+        triggers.add(checkpoint);
+
+        Trigger zone = trigger("zone", new Vec(0.5, 80.25, 1000), DynamicConsumerWrapper.ofActions(List.of("actionbar Inside", "console say hi")));
+        zone.setTickInterval(20);
+        triggers.add(zone);
+
+        // Shares its name and actions with the checkpoint, which exercises the string table
+        triggers.add(trigger("checkpoint", new Vec(-100, 64, 5), DynamicConsumerWrapper.ofActions(List.of("message <green>Checkpoint reached"))));
+        return triggers;
+    }
+
+    private static Trigger trigger(String name, Vec position, DynamicConsumerWrapper callback) {
+        List<Vec> anchors = List.of(
+                new Vec(0, 0, 0), new Vec(4, 0, 0), new Vec(0, 0, 3), new Vec(4, 0, 3),
+                new Vec(0, 2, 0), new Vec(4, 2, 0), new Vec(0, 2, 3), new Vec(4, 2, 3)
+        );
+        return new Trigger(anchors, position, UUID.randomUUID(), Component.text(name), NamedTextColor.AQUA, callback);
+    }
+}
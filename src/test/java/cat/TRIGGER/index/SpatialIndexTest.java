@@ -0,0 +1,236 @@
+/*
+ *     This file is part of cat.TRIGGER by @catkillsreality.
+ *
+ *     cat.TRIGGER is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *     cat.TRIGGER is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with cat.TRIGGER. If not, see <https://www.gnu.org/licenses/>.
+ */
+package cat.TRIGGER.index;
+
+import cat.TRIGGER.Trigger;
+import com.jamieswhiteshirt.rtree3i.Box;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares every {@link SpatialIndex} implementation against a brute force scan over the same triggers.
+ */
+class SpatialIndexTest {
+
+    private static final long SEED = 42;
+    private static final int EXTENT = 256;
+
+    static Stream<Supplier<SpatialIndex>> indexes() {
+        return Stream.of(TriggerTree::empty, SectionGrid::empty);
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void queriesMatchBruteForce(Supplier<SpatialIndex> factory) {
+        Random random = new Random(SEED);
+        List<Trigger> triggers = triggers(random, 500);
+        SpatialIndex index = factory.get().edit().addAll(triggers).apply();
+
+        assertEquals(triggers.size(), index.size());
+        assertQueries(random, index, triggers);
+    }
+
+    @Test
+    void packedTreeMatchesBruteForce() {
+        Random random = new Random(SEED);
+        List<Trigger> triggers = triggers(random, 2000);
+        TriggerTree tree = TriggerTree.pack(triggers);
+
+        assertEquals(triggers.size(), tree.size());
+        assertTrue(tree.depth() > 1);
+        assertQueries(random, tree, triggers);
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void incrementalEditsMatchBruteForce(Supplier<SpatialIndex> factory) {
+        Random random = new Random(SEED);
+        List<Trigger> expected = new ArrayList<>();
+        SpatialIndex index = factory.get();
+        // Small edits stay in the delta of the tree, the larger ones force it to be packed again
+        for (int round = 0; round < 20; round++) {
+            SpatialIndex.Edit edit = index.edit();
+            for (Trigger trigger : triggers(random, 1 + random.nextInt(round < 10 ? 8 : 64))) {
+                edit.add(trigger);
+                expected.add(trigger);
+            }
+            int removals = Math.min(expected.size(), random.nextInt(6));
+            for (int i = 0; i < removals; i++) {
+                edit.remove(expected.remove(random.nextInt(expected.size())));
+            }
+            index = edit.apply();
+
+            assertEquals(expected.size(), index.size());
+            assertQueries(random, index, expected);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void removalsMatchBruteForce(Supplier<SpatialIndex> factory) {
+        Random random = new Random(SEED);
+        List<Trigger> triggers = triggers(random, 300);
+        SpatialIndex index = factory.get().edit().addAll(triggers).apply();
+
+        List<Trigger> remaining = new ArrayList<>(triggers);
+        Collections.shuffle(remaining, random);
+        List<Trigger> removed = new ArrayList<>(remaining.subList(0, 150));
+        remaining.subList(0, 150).clear();
+        SpatialIndex.Edit edit = index.edit();
+        removed.forEach(edit::remove);
+        index = edit.apply();
+
+        assertEquals(remaining.size(), index.size());
+        for (Trigger trigger : removed) {
+            assertFalse(index.contains(trigger));
+        }
+        for (Trigger trigger : remaining) {
+            assertTrue(index.contains(trigger));
+        }
+        assertQueries(random, index, remaining);
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void addingTwiceKeepsOneEntry(Supplier<SpatialIndex> factory) {
+        Trigger trigger = cube(new Vec(8, 8, 8), 4);
+        SpatialIndex index = factory.get().edit().add(trigger).add(trigger).apply();
+        index = index.edit().add(trigger).apply();
+
+        assertEquals(1, index.size());
+        assertEquals(List.of(trigger), query(index, Box.create(0, 0, 0, 16, 16, 16)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void removeAndAddReinsertsWithTheCurrentBox(Supplier<SpatialIndex> factory) {
+        Trigger moving = cube(new Vec(8, 8, 8), 4);
+        Trigger other = cube(new Vec(100, 8, 8), 4);
+        SpatialIndex index = factory.get().edit().add(moving).add(other).apply();
+
+        SpatialIndex.Edit edit = index.edit().remove(moving);
+        moving.setPosition(new Pos(40, 8, 8));
+        index = edit.add(moving).apply();
+
+        assertEquals(2, index.size());
+        assertTrue(index.contains(moving));
+        assertEquals(List.of(), query(index, Box.create(0, 0, 0, 16, 16, 16)));
+        assertEquals(List.of(moving), query(index, Box.create(32, 0, 0, 48, 16, 16)));
+        assertEquals(List.of(other), query(index, Box.create(96, 0, 0, 112, 16, 16)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void removalUsesTheBoxStoredAtInsertion(Supplier<SpatialIndex> factory) {
+        Trigger moved = cube(new Vec(8, 8, 8), 4);
+        Trigger neighbour = cube(new Vec(40, 8, 8), 4);
+        SpatialIndex index = factory.get().edit().add(moved).add(neighbour).apply();
+
+        // Moved behind the back of the index, onto its neighbour
+        moved.setPosition(new Pos(40, 8, 8));
+        index = index.edit().remove(moved).apply();
+
+        assertEquals(1, index.size());
+        assertFalse(index.contains(moved));
+        assertTrue(index.contains(neighbour));
+        assertEquals(List.of(), query(index, Box.create(0, 0, 0, 16, 16, 16)));
+        assertEquals(List.of(neighbour), query(index, Box.create(32, 0, 0, 48, 16, 16)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void forEachVisitsEveryTriggerOnce(Supplier<SpatialIndex> factory) {
+        Random random = new Random(SEED);
+        List<Trigger> triggers = triggers(random, 200);
+        SpatialIndex index = factory.get().edit().addAll(triggers).apply();
+
+        List<Trigger> visited = new ArrayList<>();
+        index.forEach(visited::add);
+        assertEquals(identitySet(triggers), identitySet(visited));
+        assertEquals(triggers.size(), visited.size());
+    }
+
+    private static void assertQueries(Random random, SpatialIndex index, List<Trigger> triggers) {
+        for (int i = 0; i < 200; i++) {
+            int size = 1 + random.nextInt(i % 10 == 0 ? 96 : 8);
+            int x = random.nextInt(EXTENT) - size, y = random.nextInt(EXTENT) - size, z = random.nextInt(EXTENT) - size;
+            Box box = Box.create(x, y, z, x + size, y + size, z + size);
+
+            List<Trigger> found = query(index, box);
+            Set<Trigger> unique = identitySet(found);
+            assertEquals(found.size(), unique.size(), "Query reported a trigger twice");
+            assertEquals(bruteForce(triggers, box), unique, "Query " + box + " differs from the brute force scan");
+        }
+    }
+
+    private static List<Trigger> query(SpatialIndex index, Box box) {
+        List<Trigger> found = new ArrayList<>();
+        index.query(box, found::add);
+        return found;
+    }
+
+    private static Set<Trigger> bruteForce(List<Trigger> triggers, Box box) {
+        Set<Trigger> expected = identitySet(List.of());
+        for (Trigger trigger : triggers) {
+            Box bounds = trigger.getBoundingBox();
+            if (bounds.x1() < box.x2() && box.x1() < bounds.x2()
+                    && bounds.y1() < box.y2() && box.y1() < bounds.y2()
+                    && bounds.z1() < box.z2() && box.z1() < bounds.z2()) {
+                expected.add(trigger);
+            }
+        }
+        return expected;
+    }
+
+    private static Set<Trigger> identitySet(List<Trigger> triggers) {
+        Set<Trigger> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(triggers);
+        return set;
+    }
+
+    /**
+     * Mostly small triggers, with a few large ones that span many sections of a {@link SectionGrid}.
+     */
+    private static List<Trigger> triggers(Random random, int count) {
+        List<Trigger> triggers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double size = random.nextInt(20) == 0 ? 40 + random.nextInt(60) : 1 + random.nextInt(12);
+            Vec position = new Vec(random.nextDouble() * EXTENT, random.nextDouble() * EXTENT, random.nextDouble() * EXTENT);
+            triggers.add(cube(position, size));
+        }
+        return triggers;
+    }
+
+    private static Trigger cube(Vec position, double size) {
+        double half = size / 2;
+        List<Vec> anchors = new ArrayList<>(8);
+        for (int corner = 0; corner < 8; corner++) {
+            anchors.add(new Vec((corner & 1) == 0 ? -half : half, (corner & 2) == 0 ? -half : half, (corner & 4) == 0 ? -half : half));
+        }
+        return new Trigger(anchors, position, UUID.randomUUID(), Component.text("test"), NamedTextColor.RED, null);
+    }
+}